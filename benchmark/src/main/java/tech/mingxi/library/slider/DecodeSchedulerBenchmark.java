@@ -0,0 +1,151 @@
+package tech.mingxi.library.slider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * time to first visible cover after a swipe across {@link #STEPS} pages with a fake decoder,
+ * which is slower than the swipe so work piles up: every step moves the window by one page and
+ * submits decodes for pages entering it nearest first like PageManager does, and one decode
+ * finishes every {@link #STEPS_PER_DECODE} steps. then decodes run until the page in the center
+ * is ready.
+ * <p>
+ * fifo runs them in submission order on a plain executor queue, skipping the ones cancelled for
+ * leaving the window like PageManager did before {@link DecodeScheduler}. priority runs them
+ * through DecodeScheduler. drainAll runs everything left through DecodeScheduler to show its
+ * overhead on throughput.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecodeSchedulerBenchmark {
+	private static final int PAGE_COUNT = 300;
+	private static final int RADIUS = 2;
+	private static final int STEPS = 12;
+	private static final int STEPS_PER_DECODE = 3;
+	/**
+	 * cost of one fake decode
+	 */
+	private static final long DECODE_TOKENS = 2000;
+
+	private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+	private final Executor executor = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			queue.add(command);
+		}
+	};
+	private final boolean[] decoded = new boolean[PAGE_COUNT];
+	private final boolean[] submitted = new boolean[PAGE_COUNT];
+	private final boolean[] cancelled = new boolean[PAGE_COUNT];
+	private Blackhole blackhole;
+	private int center;
+	private int decodeCount;
+
+	@Benchmark
+	public int fifo(Blackhole blackhole) {
+		return run(blackhole, null, true);
+	}
+
+	@Benchmark
+	public int priority(Blackhole blackhole) {
+		return run(blackhole, new DecodeScheduler(executor), true);
+	}
+
+	@Benchmark
+	public int drainAll(Blackhole blackhole) {
+		return run(blackhole, new DecodeScheduler(executor), false);
+	}
+
+	/**
+	 * @return number of decodes run
+	 */
+	private int run(Blackhole blackhole, DecodeScheduler scheduler, boolean untilVisible) {
+		this.blackhole = blackhole;
+		queue.clear();
+		for (int i = 0; i < PAGE_COUNT; i++) {
+			decoded[i] = false;
+			submitted[i] = false;
+			cancelled[i] = false;
+		}
+		decodeCount = 0;
+		for (center = 0; center < STEPS; center++) {
+			if (scheduler != null) {
+				scheduler.setFocus(center, -1, RADIUS, PAGE_COUNT, false);
+			} else {
+				for (int i = 0; i < PAGE_COUNT; i++) {
+					if (submitted[i] && Math.abs(i - center) > RADIUS) {
+						cancelled[i] = true;
+					}
+				}
+			}
+			for (int distance = 0; distance <= RADIUS; distance++) {
+				submit(scheduler, center - distance);
+				submit(scheduler, center + distance);
+			}
+			if (center % STEPS_PER_DECODE == 0) {
+				runOne();
+			}
+		}
+		center--;
+		while (!queue.isEmpty() && !(untilVisible && decoded[center])) {
+			runOne();
+		}
+		return decodeCount;
+	}
+
+	private void submit(DecodeScheduler scheduler, final int index) {
+		if (index < 0 || index >= PAGE_COUNT || submitted[index]) {
+			return;
+		}
+		submitted[index] = true;
+		cancelled[index] = false;
+		DecodeScheduler.Task task = new DecodeScheduler.Task(index) {
+			@Override
+			public void run() {
+				if (cancelled[index]) {
+					return;
+				}
+				Blackhole.consumeCPU(DECODE_TOKENS);
+				decoded[index] = true;
+				decodeCount++;
+				blackhole.consume(index);
+			}
+
+			@Override
+			void onDropped() {
+				cancelled[index] = true;
+			}
+		};
+		if (scheduler == null) {
+			executor.execute(task);
+		} else {
+			scheduler.submit(task);
+		}
+	}
+
+	/**
+	 * let one decode finish, a thread picks the next task right away if one was cancelled
+	 */
+	private void runOne() {
+		int count = decodeCount;
+		while (count == decodeCount && !queue.isEmpty()) {
+			queue.poll().run();
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package tech.mingxi.library.slider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * source rect math of MXSlider.drawPageImages for the 5 pages of one frame: cached
+ * {@link PageGeometry} against computing everything from scratch, and the cost of rebuilding
+ * a geometry
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PageGeometryBenchmark {
+	private static final int PAGES = 5;
+	private static final int WIDTH = 1080;
+	private static final int HEIGHT = 1920;
+	private static final float SIDE_WIDTH = WIDTH * 0.064f;
+	private static final float SIDE_TOP_MARGIN = HEIGHT * 0.133f;
+	private static final float SIDE_HEIGHT = HEIGHT * 0.431f;
+
+	private final int[][] bitmapSizes = {{1080, 1440}, {1440, 1080}, {540, 960}, {1000, 1000}, {1008, 756}};
+	private final PageGeometry[] geometries = new PageGeometry[PAGES];
+	private float swipePosition = 2.37f;
+
+	@Setup
+	public void setUp() {
+		for (int i = 0; i < PAGES; i++) {
+			geometries[i] = new PageGeometry();
+			geometries[i].set(bitmapSizes[i][0], bitmapSizes[i][1], WIDTH, HEIGHT, SIDE_WIDTH, SIDE_TOP_MARGIN, SIDE_HEIGHT);
+		}
+	}
+
+	@Benchmark
+	public void frame_cached(Blackhole blackhole) {
+		for (int i = 0; i < PAGES; i++) {
+			float offset = i - swipePosition;
+			PageGeometry geometry = geometries[i];
+			if (!geometry.matches(bitmapSizes[i][0], bitmapSizes[i][1], WIDTH, HEIGHT, SIDE_WIDTH, SIDE_TOP_MARGIN, SIDE_HEIGHT)) {
+				geometry.set(bitmapSizes[i][0], bitmapSizes[i][1], WIDTH, HEIGHT, SIDE_WIDTH, SIDE_TOP_MARGIN, SIDE_HEIGHT);
+			}
+			blackhole.consume(geometry.backgroundTop + geometry.backgroundBottom);
+			blackhole.consume(geometry.getCenterLeft(offset));
+			blackhole.consume(geometry.getCenterRight(offset));
+			blackhole.consume(geometry.centerTop);
+			blackhole.consume(geometry.centerBottom);
+		}
+	}
+
+	@Benchmark
+	public void frame_uncached(Blackhole blackhole) {
+		for (int i = 0; i < PAGES; i++) {
+			float offset = i - swipePosition;
+			int bitmapWidth = bitmapSizes[i][0];
+			int bitmapHeight = bitmapSizes[i][1];
+			//formulas drawPageImages evaluated every frame before geometry was cached
+			int centerWidth = (int) (WIDTH - 2 * SIDE_WIDTH);
+			double ratio = ((double) WIDTH) / HEIGHT;
+			float x;
+			int bitmapCenterWidth;
+			if (((double) bitmapWidth) / bitmapHeight <= ratio) {
+				x = (float) (bitmapWidth / ratio);
+				blackhole.consume((int) ((bitmapHeight - x) / 2.0) + (int) ((bitmapHeight + x) / 2.0));
+			} else {
+				x = (float) (bitmapHeight * ratio);
+				blackhole.consume((int) ((bitmapWidth - x) / 2.0) + (int) ((bitmapWidth + x) / 2.0));
+			}
+			if (((double) bitmapWidth) / bitmapHeight <= ratio) {
+				x = (float) (bitmapWidth / ratio);
+				bitmapCenterWidth = (int) ((double) bitmapWidth / WIDTH * centerWidth);
+				blackhole.consume((int) (bitmapWidth * (-0.5 * offset + 0.5) + bitmapCenterWidth * (0.5 * offset - 0.5)));
+				blackhole.consume((int) (bitmapWidth * (-0.5 * offset + 0.5) + bitmapCenterWidth * (0.5 * offset + 0.5)));
+				blackhole.consume((int) ((bitmapHeight - x) / 2.0 + x * SIDE_TOP_MARGIN / HEIGHT));
+				blackhole.consume((int) ((bitmapHeight - x) / 2.0 + x * (((double) SIDE_TOP_MARGIN + SIDE_HEIGHT) / HEIGHT)));
+			} else {
+				x = (float) (bitmapHeight * ratio);
+				bitmapCenterWidth = (int) (x / WIDTH * centerWidth);
+				blackhole.consume((int) ((bitmapWidth - x) / 2.0 + x * (-0.5 * offset + 0.5) + bitmapCenterWidth * (0.5 * offset - 0.5)));
+				blackhole.consume((int) ((bitmapWidth - x) / 2.0 + x * (-0.5 * offset + 0.5) + bitmapCenterWidth * (0.5 * offset + 0.5)));
+				blackhole.consume((int) (bitmapHeight * ((double) SIDE_TOP_MARGIN) / HEIGHT));
+				blackhole.consume((int) (bitmapHeight * (((double) SIDE_TOP_MARGIN + SIDE_HEIGHT) / HEIGHT)));
+			}
+		}
+	}
+
+	@Benchmark
+	public PageGeometry rebuild() {
+		PageGeometry geometry = geometries[0];
+		geometry.set(bitmapSizes[1][0], bitmapSizes[1][1], WIDTH, HEIGHT, SIDE_WIDTH, SIDE_TOP_MARGIN, SIDE_HEIGHT);
+		geometry.set(bitmapSizes[0][0], bitmapSizes[0][1], WIDTH, HEIGHT, SIDE_WIDTH, SIDE_TOP_MARGIN, SIDE_HEIGHT);
+		return geometry;
+	}
+}
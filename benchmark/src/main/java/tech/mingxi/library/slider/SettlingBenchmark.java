@@ -0,0 +1,98 @@
+package tech.mingxi.library.slider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * settling kinematics of MXSlider: a whole 250ms snap back sampled at 60Hz, with swipe position
+ * computed and fixed for every frame like MXSlider does. flings of the other physics are sampled
+ * the same way until they come to rest
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SettlingBenchmark {
+	private static final int PAGE_COUNT = 7;
+	private static final long SETTLING_DURATION = 250;
+	private static final float FRAME_INTERVAL = 1000f / 60;
+	private static final int WIDTH = 1080;
+
+	private static final long START = 1000000000L;
+
+	private static final float FLING_DISPLACEMENT = WIDTH * 3.4f;
+	private static final float FLING_VELOCITY = 9f;
+
+	private final SettlingEngine engine = new SettlingEngine();
+	private final SettlingEngine springEngine = new SettlingEngine();
+	private final SettlingEngine decayEngine = new SettlingEngine();
+
+	{
+		springEngine.setPhysics(new SpringPhysics());
+		decayEngine.setPhysics(new DecayPhysics());
+	}
+	private float settlingDisplacement = WIDTH * 0.4f;
+	private float settlingStartSwipePosition = 3.4f;
+
+	@Benchmark
+	public float snap() {
+		float settlingAcceleration = -2 * settlingDisplacement / (SETTLING_DURATION * SETTLING_DURATION);
+		float settlingStartVelocity = -settlingAcceleration * SETTLING_DURATION;
+		float swipePosition = settlingStartSwipePosition;
+		for (float timeOffset = 0; timeOffset < SETTLING_DURATION; timeOffset += FRAME_INTERVAL) {
+			float displacementOffset = SliderMath.getSettlingDisplacement(settlingStartVelocity, settlingAcceleration, timeOffset);
+			swipePosition = SliderMath.fixSwipePosition(settlingStartSwipePosition - displacementOffset / WIDTH, PAGE_COUNT, true);
+		}
+		return swipePosition;
+	}
+
+	/**
+	 * same snap driven by {@link SettlingEngine} with vsync timestamps
+	 */
+	@Benchmark
+	public float engineSnap() {
+		engine.snap(settlingDisplacement, START);
+		return run(engine);
+	}
+
+	/**
+	 * a fling across 3 pages with {@link SpringPhysics}
+	 */
+	@Benchmark
+	public float springFling() {
+		springEngine.fling(FLING_DISPLACEMENT, FLING_VELOCITY, START);
+		return run(springEngine);
+	}
+
+	/**
+	 * a fling across 3 pages with {@link DecayPhysics}
+	 */
+	@Benchmark
+	public float decayFling() {
+		decayEngine.fling(FLING_DISPLACEMENT, FLING_VELOCITY, START);
+		return run(decayEngine);
+	}
+
+	private float run(SettlingEngine engine) {
+		float swipePosition = settlingStartSwipePosition;
+		long frameTime = START;
+		boolean running = true;
+		while (running) {
+			running = engine.onFrame(frameTime);
+			swipePosition = SliderMath.fixSwipePosition(settlingStartSwipePosition - engine.getDisplacement() / WIDTH, PAGE_COUNT, true);
+			frameTime += SettlingEngine.DEFAULT_FRAME_INTERVAL_NANOS;
+		}
+		return swipePosition;
+	}
+}
@@ -0,0 +1,88 @@
+package tech.mingxi.library.slider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * index resolving, sample size and swipe position math, called for every drawn page and every
+ * touch event. each invocation handles {@link #SIZE} inputs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SliderMathBenchmark {
+	private static final int SIZE = 1024;
+	private static final int PAGE_COUNT = 7;
+
+	private final int[] indexes = new int[SIZE];
+	private final int[][] imageSizes = new int[SIZE][];
+	private final float[] swipePositions = new float[SIZE];
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(0);
+		for (int i = 0; i < SIZE; i++) {
+			//pages drawn around swipePosition, mostly in range and sometimes wrapped
+			indexes[i] = random.nextInt(PAGE_COUNT + 4) - 2;
+			imageSizes[i] = new int[]{500 + random.nextInt(5000), 500 + random.nextInt(5000)};
+			swipePositions[i] = random.nextFloat() * (PAGE_COUNT + 2) - 1;
+		}
+	}
+
+	@Benchmark
+	public void getFixedIndex(Blackhole blackhole) {
+		for (int i = 0; i < SIZE; i++) {
+			blackhole.consume(SliderMath.getFixedIndex(indexes[i], PAGE_COUNT));
+		}
+	}
+
+	@Benchmark
+	public void resolveIndex_loop(Blackhole blackhole) {
+		for (int i = 0; i < SIZE; i++) {
+			blackhole.consume(SliderMath.resolveIndex(indexes[i], PAGE_COUNT, true));
+		}
+	}
+
+	@Benchmark
+	public void resolveIndex_noLoop(Blackhole blackhole) {
+		for (int i = 0; i < SIZE; i++) {
+			blackhole.consume(SliderMath.resolveIndex(indexes[i], PAGE_COUNT, false));
+		}
+	}
+
+	@Benchmark
+	public void calculateInSampleSize(Blackhole blackhole) {
+		for (int i = 0; i < SIZE; i++) {
+			blackhole.consume(SliderMath.calculateInSampleSize(imageSizes[i][0], imageSizes[i][1], 1080, 1920));
+		}
+	}
+
+	@Benchmark
+	public void fixSwipePosition_loop(Blackhole blackhole) {
+		for (int i = 0; i < SIZE; i++) {
+			blackhole.consume(SliderMath.fixSwipePosition(swipePositions[i], PAGE_COUNT, true));
+		}
+	}
+
+	@Benchmark
+	public void fixSwipePosition_noLoop(Blackhole blackhole) {
+		for (int i = 0; i < SIZE; i++) {
+			blackhole.consume(SliderMath.fixSwipePosition(swipePositions[i], PAGE_COUNT, false));
+		}
+	}
+}
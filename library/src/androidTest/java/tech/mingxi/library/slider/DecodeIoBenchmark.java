@@ -0,0 +1,93 @@
+package tech.mingxi.library.slider;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.net.Uri;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * compares stream opens and bytes read per page of the old decode path, which opened every
+ * source twice, with the single-pass path of {@link PageManager#getBitmapFromUri(Uri, int, int)}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DecodeIoBenchmark {
+	private static final int PAGES = 20;
+	private static final int TARGET_SIZE = 300;
+	private File file;
+
+	@Before
+	public void createImage() throws IOException {
+		Context context = InstrumentationRegistry.getTargetContext();
+		Bitmap bitmap = Bitmap.createBitmap(1600, 1200, Bitmap.Config.ARGB_8888);
+		for (int x = 0; x < bitmap.getWidth(); x += 8) {
+			for (int y = 0; y < bitmap.getHeight(); y += 8) {
+				bitmap.setPixel(x, y, Color.rgb(x % 256, y % 256, (x + y) % 256));
+			}
+		}
+		file = new File(context.getCacheDir(), "decode-io-benchmark.jpg");
+		FileOutputStream stream = new FileOutputStream(file);
+		bitmap.compress(Bitmap.CompressFormat.JPEG, 90, stream);
+		stream.close();
+		bitmap.recycle();
+	}
+
+	@Test
+	public void singlePassReadsEachPageOnce() throws IOException {
+		long twoPassOpens = 0;
+		long twoPassBytes = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < PAGES; i++) {
+			CountingInputStream stream = new CountingInputStream(new FileInputStream(file));
+			BitmapFactory.Options options = new BitmapFactory.Options();
+			options.inJustDecodeBounds = true;
+			BitmapFactory.decodeStream(stream, null, options);
+			stream.close();
+			twoPassBytes += stream.getCount();
+			stream = new CountingInputStream(new FileInputStream(file));
+			options.inJustDecodeBounds = false;
+			options.inSampleSize = 4;
+			Bitmap bitmap = BitmapFactory.decodeStream(stream, null, options);
+			stream.close();
+			twoPassBytes += stream.getCount();
+			twoPassOpens += 2;
+			assertNotNull(bitmap);
+		}
+		long twoPassNanos = System.nanoTime() - start;
+
+		PageManager pageManager = new PageManager(InstrumentationRegistry.getTargetContext(), null);
+		pageManager.setDiskCacheEnabled(false);
+		Uri uri = Uri.fromFile(file);
+		DecodeMetrics.Snapshot before = DecodeMetrics.getInstance().snapshot();
+		start = System.nanoTime();
+		for (int i = 0; i < PAGES; i++) {
+			BitmapMemoryCache.getInstance().clear();
+			assertNotNull(pageManager.getBitmapFromUri(uri, TARGET_SIZE, TARGET_SIZE));
+		}
+		long singlePassNanos = System.nanoTime() - start;
+		DecodeMetrics.Snapshot after = DecodeMetrics.getInstance().snapshot();
+		long singlePassOpens = after.getTotalStreamOpenCount() - before.getTotalStreamOpenCount();
+		long singlePassBytes = after.getTotalBytesRead() - before.getTotalBytesRead();
+
+		Log.i(MXSlider.DEBUG_TAG, String.format("two-pass: %.1f opens, %d bytes, %.2f ms per page",
+				(double) twoPassOpens / PAGES, twoPassBytes / PAGES, twoPassNanos / 1e6 / PAGES));
+		Log.i(MXSlider.DEBUG_TAG, String.format("single-pass: %.1f opens, %d bytes, %.2f ms per page",
+				(double) singlePassOpens / PAGES, singlePassBytes / PAGES, singlePassNanos / 1e6 / PAGES));
+		assertEquals(PAGES, singlePassOpens);
+		assertTrue(singlePassBytes < twoPassBytes);
+	}
+}
@@ -0,0 +1,153 @@
+package tech.mingxi.library.slider;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.net.Uri;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * measures average cost of one {@link MXSlider#onDraw(Canvas)} on a software canvas while
+ * dragging back and forth within one page, which is what happens on every frame of a drag or
+ * settle. text layouts and layers of the pages drawn are built during warmup, so from then on
+ * a frame only draws them at a new offset and must not allocate.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DrawBenchmark {
+	private static final int WIDTH = 1080;
+	private static final int HEIGHT = 1920;
+	private static final int WARMUP_FRAMES = 100;
+	private static final int FRAMES = 1000;
+	/**
+	 * current page while dragging, with two pages on each side
+	 */
+	private static final int START_INDEX = 4;
+	/**
+	 * frames to drag from one end of the page to the other
+	 */
+	private static final int FRAMES_PER_SWEEP = 50;
+
+	@Test
+	public void drawFrames() {
+		//views and PageManager's changes of pages belong to main thread
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				drawFramesOnMainThread();
+			}
+		});
+	}
+
+	private void drawFramesOnMainThread() {
+		final MXSlider slider = new MXSlider(InstrumentationRegistry.getTargetContext());
+		List<Page> pages = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			pages.add(new TestPage("title of page\n" + i, "subtitle of page " + i));
+		}
+		slider.getPageManager().addAllPages(pages);
+		slider.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+				View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+		slider.layout(0, 0, WIDTH, HEIGHT);
+		Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+		Canvas canvas = new Canvas(bitmap);
+		slider.setIndex(START_INDEX);
+		long downTime = SystemClock.uptimeMillis();
+		float y = HEIGHT / 2f;
+		dispatchTouch(slider, downTime, MotionEvent.ACTION_DOWN, WIDTH, y);
+		for (int i = 0; i < WARMUP_FRAMES; i++) {
+			dispatchTouch(slider, downTime, MotionEvent.ACTION_MOVE, getDragX(i), y);
+			slider.draw(canvas);
+		}
+		long nanos = 0;
+		for (int i = 0; i < FRAMES; i++) {
+			dispatchTouch(slider, downTime, MotionEvent.ACTION_MOVE, getDragX(i), y);
+			long start = System.nanoTime();
+			slider.draw(canvas);
+			nanos += System.nanoTime() - start;
+		}
+		Log.i(MXSlider.DEBUG_TAG, String.format("onDraw: %.1f us per frame", nanos / 1e3 / FRAMES));
+		int allocations = countDrawAllocations(slider, canvas, downTime, y);
+		dispatchTouch(slider, downTime, MotionEvent.ACTION_CANCEL, getDragX(0), y);
+		bitmap.recycle();
+		assertEquals("allocations while dragging", 0, allocations);
+	}
+
+	/**
+	 * @return objects allocated on this thread by drawing FRAMES frames, touch handling between
+	 * them is not counted
+	 */
+	@SuppressWarnings("deprecation")
+	private static int countDrawAllocations(MXSlider slider, Canvas canvas, long downTime, float y) {
+		int allocations = 0;
+		Debug.startAllocCounting();
+		try {
+			for (int i = 0; i < FRAMES; i++) {
+				dispatchTouch(slider, downTime, MotionEvent.ACTION_MOVE, getDragX(i), y);
+				Debug.resetThreadAllocCount();
+				slider.draw(canvas);
+				allocations += Debug.getThreadAllocCount();
+			}
+		} finally {
+			Debug.stopAllocCounting();
+		}
+		return allocations;
+	}
+
+	/**
+	 * @return x of touch at frame, sweeping between 5% and 95% of the page after START_INDEX and
+	 * back, so current page stays the same
+	 */
+	private static float getDragX(int frame) {
+		int step = frame % (2 * FRAMES_PER_SWEEP);
+		if (step > FRAMES_PER_SWEEP) {
+			step = 2 * FRAMES_PER_SWEEP - step;
+		}
+		float offset = 0.05f + 0.9f * step / FRAMES_PER_SWEEP;
+		//dragging to the left by a fraction of the width moves forward by that fraction of a page
+		return WIDTH * (1 - offset);
+	}
+
+	private static void dispatchTouch(MXSlider slider, long downTime, int action, float x, float y) {
+		MotionEvent event = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, x, y, 0);
+		slider.onTouchEvent(event);
+		event.recycle();
+	}
+
+	private static class TestPage implements Page {
+		private final String title;
+		private final String subtitle;
+
+		TestPage(String title, String subtitle) {
+			this.title = title;
+			this.subtitle = subtitle;
+		}
+
+		@Override
+		public Uri getLocalUri() {
+			return null;
+		}
+
+		@Override
+		public String getTitle() {
+			return title;
+		}
+
+		@Override
+		public String getSubtitle() {
+			return subtitle;
+		}
+	}
+}
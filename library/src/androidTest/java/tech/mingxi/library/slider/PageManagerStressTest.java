@@ -0,0 +1,255 @@
+package tech.mingxi.library.slider;
+
+import android.net.Uri;
+import android.os.Looper;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * changes pages of a {@link PageManager} from a worker thread, while other threads read pages and
+ * main thread reads them like onDraw does and refreshes bitmaps. nothing may throw, and once main
+ * thread is idle it must hold exactly the pages the worker ended up with.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PageManagerStressTest {
+	private static final int WRITES = 5000;
+	private static final int READERS = 3;
+
+	private final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger listChanges = new AtomicInteger();
+	private volatile boolean writing = true;
+	private PageManager pageManager;
+
+	@Test
+	public void concurrentWritesAndReads() throws InterruptedException {
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				pageManager = new PageManager(InstrumentationRegistry.getTargetContext(), new CheckingListener());
+			}
+		});
+		final List<Page> expected = new ArrayList<>();
+		Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					write(expected);
+				} catch (Throwable t) {
+					errors.add(t);
+				} finally {
+					writing = false;
+				}
+			}
+		}, "writer");
+		List<Thread> readers = new ArrayList<>();
+		for (int i = 0; i < READERS; i++) {
+			final int seed = i;
+			readers.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					read(seed);
+				}
+			}, "reader-" + i));
+		}
+		writer.start();
+		for (Thread reader : readers) {
+			reader.start();
+		}
+		int frame = 0;
+		while (writing) {
+			final int size = 100 + frame++ % 2;
+			InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						drawFrame(size);
+					} catch (Throwable t) {
+						errors.add(t);
+					}
+				}
+			});
+		}
+		writer.join();
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		//writes posted by the worker are applied by now
+		InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+		final List<Page> actual = new ArrayList<>();
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; i < pageManager.getPageCount(); i++) {
+					actual.add(pageManager.getPage(i));
+				}
+			}
+		});
+		if (!errors.isEmpty()) {
+			throw new AssertionError(errors.peek());
+		}
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertSame(expected.get(i), actual.get(i));
+		}
+		assertTrue(listChanges.get() > 0);
+	}
+
+	private void write(List<Page> expected) {
+		Random random = new Random(1);
+		int id = 0;
+		for (int i = 0; i < WRITES; i++) {
+			int size = expected.size();
+			int operation = size < 10 ? 0 : random.nextInt(6);
+			switch (operation) {
+				case 0: {
+					Page page = new TestPage(id++);
+					expected.add(page);
+					pageManager.addPage(page);
+					break;
+				}
+				case 1: {
+					int index = random.nextInt(size + 1);
+					Page page = new TestPage(id++);
+					expected.add(index, page);
+					pageManager.insertPage(index, page);
+					break;
+				}
+				case 2: {
+					int index = random.nextInt(size);
+					expected.remove(index);
+					pageManager.removePage(index);
+					break;
+				}
+				case 3: {
+					int from = random.nextInt(size);
+					int to = random.nextInt(size);
+					expected.add(to, expected.remove(from));
+					pageManager.movePage(from, to);
+					break;
+				}
+				case 4: {
+					int index = random.nextInt(size);
+					Page page = new TestPage(id++);
+					expected.set(index, page);
+					pageManager.replacePage(index, page);
+					break;
+				}
+				default: {
+					//swap two pages and drop one, like a playlist synced from elsewhere
+					List<Page> newPages = new ArrayList<>(expected);
+					int a = random.nextInt(size);
+					int b = random.nextInt(size);
+					newPages.set(a, expected.get(b));
+					newPages.set(b, expected.get(a));
+					newPages.remove(random.nextInt(size));
+					expected.clear();
+					expected.addAll(newPages);
+					pageManager.setPages(newPages);
+					break;
+				}
+			}
+		}
+	}
+
+	private void read(int seed) {
+		Random random = new Random(seed);
+		try {
+			while (writing) {
+				int count = pageManager.getPageCount();
+				if (count > 0) {
+					//pages may change between the two calls, out of range just returns null
+					Page page = pageManager.getPage(random.nextInt(count));
+					if (page != null) {
+						page.getTitle();
+					}
+				}
+			}
+		} catch (Throwable t) {
+			errors.add(t);
+		}
+	}
+
+	/**
+	 * what MXSlider does on main thread while pages change under it
+	 */
+	private void drawFrame(int size) {
+		int count = pageManager.getPageCount();
+		int center = count / 2;
+		pageManager.setResidencyCenter(center);
+		for (int i = center - 2; i <= center + 2; i++) {
+			pageManager.getPage(i);
+			pageManager.getBitmap(i);
+		}
+		pageManager.refreshBitmaps(size, size);
+	}
+
+	private final class CheckingListener implements PageManager.OnStateChangeListener {
+		@Override
+		public void onPageAdd() {
+			checkMainThread();
+		}
+
+		@Override
+		public void onPageListChanged(int type, int index, int toIndex) {
+			checkMainThread();
+			listChanges.incrementAndGet();
+		}
+
+		@Override
+		public void onPageListChangesApplied() {
+			checkMainThread();
+		}
+
+		@Override
+		public void onPagesLoaded(int start, int count) {
+			checkMainThread();
+		}
+
+		@Override
+		public void onBitmapLoaded(int index) {
+			checkMainThread();
+		}
+
+		private void checkMainThread() {
+			if (Looper.myLooper() != Looper.getMainLooper()) {
+				errors.add(new AssertionError("listener called on " + Thread.currentThread().getName()));
+			}
+		}
+	}
+
+	private static final class TestPage implements Page {
+		private final String title;
+
+		TestPage(int id) {
+			title = "page " + id;
+		}
+
+		@Override
+		public Uri getLocalUri() {
+			return null;
+		}
+
+		@Override
+		public String getTitle() {
+			return title;
+		}
+
+		@Override
+		public String getSubtitle() {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,241 @@
+package tech.mingxi.library.slider;
+
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.util.LruCache;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * process-wide LRU cache of decoded page bitmaps, shared by all {@link PageManager}s.
+ * its size is measured in bytes by {@link Bitmap#getAllocationByteCount()}.
+ * <p>
+ * bitmaps in this cache may be displayed by several sliders at the same time, so they are
+ * reference counted: every PageManager displaying a bitmap holds a reference from
+ * {@link #acquire(Key)} or {@link #putAndAcquire(Key, Bitmap)} until {@link #release(Bitmap)}.
+ * a bitmap is handed to {@link BitmapPool} for reuse once it is neither cached nor referenced.
+ */
+public class BitmapMemoryCache {
+	/**
+	 * max number of remembered image bounds, each of them is just two ints
+	 */
+	private static final int MAX_BOUNDS_COUNT = 1024;
+	private static BitmapMemoryCache instance;
+
+	private final LruCache<Key, Bitmap> bitmaps;
+	/**
+	 * raw width and height of decoded uris, so sample size of a request can be calculated
+	 * without opening any stream
+	 */
+	private final LruCache<Uri, int[]> bounds;
+	/**
+	 * modification stamps of uris whose stamp is expensive to look up, see
+	 * {@link PageManager#getModificationStamp(Uri)}
+	 */
+	private final LruCache<Uri, Long> modificationStamps;
+	/**
+	 * number of PageManager slots displaying each bitmap, guarded by this
+	 */
+	private final IdentityHashMap<Bitmap, Integer> references = new IdentityHashMap<>();
+	/**
+	 * bitmaps currently held by {@link #bitmaps}, guarded by this
+	 */
+	private final Set<Bitmap> cachedBitmaps = Collections.newSetFromMap(new IdentityHashMap<Bitmap, Boolean>());
+
+	public static synchronized BitmapMemoryCache getInstance() {
+		if (instance == null) {
+			instance = new BitmapMemoryCache((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8));
+		}
+		return instance;
+	}
+
+	BitmapMemoryCache(int maxBytes) {
+		bitmaps = new LruCache<Key, Bitmap>(maxBytes) {
+			@Override
+			protected int sizeOf(Key key, Bitmap value) {
+				return value.getAllocationByteCount();
+			}
+
+			@Override
+			protected void entryRemoved(boolean evicted, Key key, Bitmap oldValue, Bitmap newValue) {
+				if (oldValue != newValue) {
+					onBitmapRemoved(oldValue);
+				}
+			}
+		};
+		bounds = new LruCache<>(MAX_BOUNDS_COUNT);
+		modificationStamps = new LruCache<>(MAX_BOUNDS_COUNT);
+	}
+
+	/**
+	 * @return cached bitmap with a reference held by caller, or null
+	 */
+	synchronized Bitmap acquire(Key key) {
+		Bitmap bitmap = bitmaps.get(key);
+		if (bitmap != null) {
+			addReference(bitmap);
+		}
+		return bitmap;
+	}
+
+	/**
+	 * cache bitmap and hold a reference to it for caller
+	 */
+	synchronized void putAndAcquire(Key key, Bitmap bitmap) {
+		addReference(bitmap);
+		cachedBitmaps.add(bitmap);
+		bitmaps.put(key, bitmap);
+	}
+
+	/**
+	 * drop a reference taken by acquire() or putAndAcquire()
+	 */
+	synchronized void release(Bitmap bitmap) {
+		Integer count = references.get(bitmap);
+		if (count == null) {
+			return;
+		}
+		if (count > 1) {
+			references.put(bitmap, count - 1);
+		} else {
+			references.remove(bitmap);
+			if (!cachedBitmaps.contains(bitmap)) {
+				BitmapPool.getInstance().put(bitmap);
+			}
+		}
+	}
+
+	/**
+	 * drop cached bitmaps, bounds and modification stamp of uri, e.g. because its image changed.
+	 * bitmaps which are still displayed stay valid until they are released.
+	 */
+	synchronized void remove(Uri uri) {
+		for (Key key : bitmaps.snapshot().keySet()) {
+			if (key.uri.equals(uri)) {
+				bitmaps.remove(key);
+			}
+		}
+		bounds.remove(uri);
+		modificationStamps.remove(uri);
+	}
+
+	private void addReference(Bitmap bitmap) {
+		Integer count = references.get(bitmap);
+		references.put(bitmap, count == null ? 1 : count + 1);
+	}
+
+	private synchronized void onBitmapRemoved(Bitmap bitmap) {
+		cachedBitmaps.remove(bitmap);
+		if (!references.containsKey(bitmap)) {
+			BitmapPool.getInstance().put(bitmap);
+		}
+	}
+
+	/**
+	 * @return {width, height} of the image at uri, or null if it has never been decoded
+	 */
+	int[] getBounds(Uri uri) {
+		return bounds.get(uri);
+	}
+
+	void putBounds(Uri uri, int width, int height) {
+		bounds.put(uri, new int[]{width, height});
+	}
+
+	/**
+	 * @return modification stamp stored for uri, or null if there is none
+	 */
+	Long getModificationStamp(Uri uri) {
+		return modificationStamps.get(uri);
+	}
+
+	void putModificationStamp(Uri uri, long stamp) {
+		modificationStamps.put(uri, stamp);
+	}
+
+	/**
+	 * @param maxBytes new max size of all cached bitmaps in bytes, bitmaps are evicted if necessary
+	 */
+	public void setMaxSize(int maxBytes) {
+		bitmaps.resize(maxBytes);
+	}
+
+	public int getMaxSize() {
+		return bitmaps.maxSize();
+	}
+
+	/**
+	 * @return current size of all cached bitmaps in bytes
+	 */
+	public int getSize() {
+		return bitmaps.size();
+	}
+
+	public int getHitCount() {
+		return bitmaps.hitCount();
+	}
+
+	public int getMissCount() {
+		return bitmaps.missCount();
+	}
+
+	public int getEvictionCount() {
+		return bitmaps.evictionCount();
+	}
+
+	public void clear() {
+		bitmaps.evictAll();
+		bounds.evictAll();
+		modificationStamps.evictAll();
+	}
+
+	static final class Key {
+		private final Uri uri;
+		private final int width;
+		private final int height;
+		private final int sampleSize;
+
+		Key(Uri uri, int width, int height, int sampleSize) {
+			this.uri = uri;
+			this.width = width;
+			this.height = height;
+			this.sampleSize = sampleSize;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			Key key = (Key) o;
+			return width == key.width
+					&& height == key.height
+					&& sampleSize == key.sampleSize
+					&& uri.equals(key.uri);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = uri.hashCode();
+			result = 31 * result + width;
+			result = 31 * result + height;
+			result = 31 * result + sampleSize;
+			return result;
+		}
+
+		@Override
+		public String toString() {
+			return "Key{" +
+					"uri=" + uri +
+					", width=" + width +
+					", height=" + height +
+					", sampleSize=" + sampleSize +
+					'}';
+		}
+	}
+}
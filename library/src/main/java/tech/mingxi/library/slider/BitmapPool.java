@@ -0,0 +1,184 @@
+package tech.mingxi.library.slider;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * process-wide pool of mutable bitmaps which are no longer displayed, so decodes can reuse their
+ * memory through {@link android.graphics.BitmapFactory.Options#inBitmap} instead of allocating.
+ * <p>
+ * bitmaps are grouped in size classes by {@link Bitmap#getAllocationByteCount()}: class k holds
+ * bitmaps of at least 2^k bytes, so any bitmap taken from class ceil(log2(n)) fits n bytes.
+ * the total size is bounded in bytes and the oldest bitmaps are evicted first.
+ */
+public class BitmapPool {
+	private static final int SIZE_CLASS_COUNT = 32;
+	/**
+	 * a request may be served from this many size classes above its own one, so a pooled bitmap
+	 * wastes at most 3/4 of its memory
+	 */
+	private static final int MAX_SIZE_CLASS_STEP = 2;
+	private static BitmapPool instance;
+
+	private final ArrayList<ArrayDeque<Bitmap>> sizeClasses;
+	/**
+	 * all pooled bitmaps, oldest first
+	 */
+	private final ArrayList<Bitmap> order = new ArrayList<>();
+	private int maxSize;
+	private int size = 0;
+	private int hitCount = 0;
+	private int missCount = 0;
+	private int putCount = 0;
+	private int evictionCount = 0;
+
+	public static synchronized BitmapPool getInstance() {
+		if (instance == null) {
+			instance = new BitmapPool((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 16));
+		}
+		return instance;
+	}
+
+	BitmapPool(int maxBytes) {
+		maxSize = maxBytes;
+		sizeClasses = new ArrayList<>(SIZE_CLASS_COUNT);
+		for (int i = 0; i < SIZE_CLASS_COUNT; i++) {
+			sizeClasses.add(new ArrayDeque<Bitmap>());
+		}
+	}
+
+	/**
+	 * take a bitmap which can hold width * height pixels of config out of the pool.
+	 * it still has its old size and content, which is fine for inBitmap.
+	 *
+	 * @return a reusable bitmap, or null if there is no fitting one
+	 */
+	synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+		long bytes = (long) width * height * getBytesPerPixel(config);
+		if (bytes <= 0 || bytes > Integer.MAX_VALUE) {
+			missCount++;
+			return null;
+		}
+		int sizeClass = 32 - Integer.numberOfLeadingZeros((int) bytes - 1);//ceil(log2(bytes))
+		for (int i = sizeClass; i <= sizeClass + MAX_SIZE_CLASS_STEP && i < SIZE_CLASS_COUNT; i++) {
+			Bitmap bitmap = sizeClasses.get(i).pollFirst();
+			if (bitmap != null) {
+				removeFromOrder(bitmap);
+				size -= bitmap.getAllocationByteCount();
+				hitCount++;
+				return bitmap;
+			}
+		}
+		missCount++;
+		return null;
+	}
+
+	/**
+	 * like {@link #get(int, int, Bitmap.Config)}, but the bitmap is reconfigured to exactly
+	 * width * height and cleared. a new bitmap is created if pool has no fitting one.
+	 */
+	Bitmap getCleared(int width, int height, Bitmap.Config config) {
+		Bitmap bitmap = get(width, height, config);
+		if (bitmap != null) {
+			try {
+				bitmap.reconfigure(width, height, config);
+				bitmap.eraseColor(Color.TRANSPARENT);
+				return bitmap;
+			} catch (IllegalArgumentException e) {
+				//not reconfigurable, let it be garbage collected
+			}
+		}
+		return Bitmap.createBitmap(width, height, config);
+	}
+
+	/**
+	 * hand a bitmap which is not displayed or referenced anywhere else to the pool
+	 *
+	 * @return whether bitmap was pooled. if not, it is simply left to garbage collector
+	 */
+	synchronized boolean put(Bitmap bitmap) {
+		if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+			return false;
+		}
+		int bytes = bitmap.getAllocationByteCount();
+		if (bytes <= 0 || bytes > maxSize) {
+			return false;
+		}
+		sizeClasses.get(31 - Integer.numberOfLeadingZeros(bytes)).addLast(bitmap);//floor(log2(bytes))
+		order.add(bitmap);
+		size += bytes;
+		putCount++;
+		trimToSize(maxSize);
+		return true;
+	}
+
+	public synchronized void setMaxSize(int maxBytes) {
+		maxSize = maxBytes;
+		trimToSize(maxSize);
+	}
+
+	public synchronized int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return total size of pooled bitmaps in bytes
+	 */
+	public synchronized int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return number of requests served by a pooled bitmap, i.e. allocations saved
+	 */
+	public synchronized int getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized int getMissCount() {
+		return missCount;
+	}
+
+	public synchronized int getPutCount() {
+		return putCount;
+	}
+
+	public synchronized int getEvictionCount() {
+		return evictionCount;
+	}
+
+	public synchronized void clear() {
+		trimToSize(0);
+	}
+
+	private void trimToSize(int maxBytes) {
+		while (size > maxBytes && !order.isEmpty()) {
+			Bitmap eldest = order.remove(0);
+			int bytes = eldest.getAllocationByteCount();
+			sizeClasses.get(31 - Integer.numberOfLeadingZeros(bytes)).remove(eldest);
+			size -= bytes;
+			evictionCount++;
+		}
+	}
+
+	private void removeFromOrder(Bitmap bitmap) {
+		for (int i = 0; i < order.size(); i++) {
+			if (order.get(i) == bitmap) {
+				order.remove(i);
+				return;
+			}
+		}
+	}
+
+	static int getBytesPerPixel(Bitmap.Config config) {
+		if (config == Bitmap.Config.ALPHA_8) {
+			return 1;
+		} else if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+			return 2;
+		}
+		return 4;
+	}
+}
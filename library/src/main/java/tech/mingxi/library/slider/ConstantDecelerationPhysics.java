@@ -0,0 +1,72 @@
+package tech.mingxi.library.slider;
+
+/**
+ * decelerates constantly to stop exactly at displacement. a fling keeps its velocity at
+ * touch-up and travels a distance proportional to it, other settling takes a fixed duration.
+ * <p>
+ * this is the default physics of {@link MXSlider}.
+ */
+public class ConstantDecelerationPhysics implements SettlingPhysics {
+	public static final long DEFAULT_DURATION = 250;
+	/**
+	 * a fling travels its velocity times this many ms, which also makes every fling landing on
+	 * the page nearest to its natural end take about 2 times as long
+	 */
+	public static final float DEFAULT_FLING_DISTANCE_FACTOR = 250;
+
+	private final float duration;
+	private final float flingDistanceFactor;
+	private float velocity;
+	private float acceleration;
+	private float endTime;
+
+	public ConstantDecelerationPhysics() {
+		this(DEFAULT_DURATION, DEFAULT_FLING_DISTANCE_FACTOR);
+	}
+
+	/**
+	 * @param duration            of settling which is not a fling, in ms
+	 * @param flingDistanceFactor distance of a fling divided by its velocity, in ms. 0 makes every
+	 *                            fling move to the next page only
+	 */
+	public ConstantDecelerationPhysics(long duration, float flingDistanceFactor) {
+		if (duration <= 0 || flingDistanceFactor < 0) {
+			throw new IllegalArgumentException("duration must be positive and flingDistanceFactor not negative");
+		}
+		this.duration = duration;
+		this.flingDistanceFactor = flingDistanceFactor;
+	}
+
+	@Override
+	public float getFlingDistance(float velocity) {
+		return velocity * flingDistanceFactor;
+	}
+
+	@Override
+	public void start(float displacement, float velocity) {
+		if (velocity == 0) {
+			acceleration = -2 * displacement / (duration * duration);
+			this.velocity = -acceleration * duration;
+			endTime = duration;
+		} else if ((displacement > 0) == (velocity > 0)) {
+			acceleration = -velocity * velocity / (2 * displacement);
+			this.velocity = velocity;
+			endTime = -velocity / acceleration;
+		} else {
+			//can not reach displacement with this velocity, stop at once
+			this.velocity = 0;
+			acceleration = 0;
+			endTime = 0;
+		}
+	}
+
+	@Override
+	public float getDisplacement(float time) {
+		return SliderMath.getSettlingDisplacement(velocity, acceleration, time);
+	}
+
+	@Override
+	public boolean isFinished(float time) {
+		return time >= endTime;
+	}
+}
@@ -0,0 +1,53 @@
+package tech.mingxi.library.slider;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * counts bytes pulled from the wrapped stream, including skipped ones
+ */
+class CountingInputStream extends FilterInputStream {
+	private long count = 0;
+
+	CountingInputStream(InputStream in) {
+		super(in);
+	}
+
+	@Override
+	public int read() throws IOException {
+		int result = super.read();
+		if (result != -1) {
+			count++;
+		}
+		return result;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int result = super.read(b, off, len);
+		if (result > 0) {
+			count += result;
+		}
+		return result;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long result = super.skip(n);
+		count += result;
+		return result;
+	}
+
+	/**
+	 * marking is left to a buffer on top of this stream, so bytes are never counted twice
+	 */
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	long getCount() {
+		return count;
+	}
+}
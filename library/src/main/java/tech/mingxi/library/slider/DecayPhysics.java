@@ -0,0 +1,74 @@
+package tech.mingxi.library.slider;
+
+/**
+ * velocity decays exponentially like an object sliding with friction, so a strong fling crosses
+ * several pages. the decay rate is adjusted per motion so it comes to rest exactly on the landing
+ * page, keeping its velocity at touch-up unless that would decay slower than friction.
+ */
+public class DecayPhysics implements SettlingPhysics {
+	/**
+	 * velocity is divided by e every 1 / friction ms
+	 */
+	public static final float DEFAULT_FRICTION = 0.004f;
+	public static final long DEFAULT_SNAP_DURATION = 300;
+	/**
+	 * motion ends when it is this close to displacement, in px
+	 */
+	private static final float REST_THRESHOLD = 0.5f;
+
+	private final float friction;
+	private final float snapDuration;
+	private float displacement;
+	/**
+	 * decay rate of current motion, per ms
+	 */
+	private float rate;
+	private float endTime;
+
+	public DecayPhysics() {
+		this(DEFAULT_FRICTION, DEFAULT_SNAP_DURATION);
+	}
+
+	/**
+	 * @param friction     decay rate of a free fling per ms, smaller ones travel further
+	 * @param snapDuration time to come to rest when settling is not a fling, in ms
+	 */
+	public DecayPhysics(float friction, long snapDuration) {
+		if (friction <= 0 || snapDuration <= 0) {
+			throw new IllegalArgumentException("friction and snapDuration must be positive");
+		}
+		this.friction = friction;
+		this.snapDuration = snapDuration;
+	}
+
+	@Override
+	public float getFlingDistance(float velocity) {
+		return velocity / friction;
+	}
+
+	@Override
+	public void start(float displacement, float velocity) {
+		this.displacement = displacement;
+		//time until the rest of the distance is below REST_THRESHOLD
+		float restTime = (float) Math.log(Math.max(1, Math.abs(displacement) / REST_THRESHOLD));
+		if (velocity != 0 && (displacement > 0) == (velocity > 0)) {
+			//x(t) = displacement * (1 - e^(-rate * t)) starts with exactly this velocity. a weak fling
+			//landing beyond its natural distance would crawl, so it starts faster instead
+			rate = Math.max(velocity / displacement, friction);
+			endTime = restTime / rate;
+		} else {
+			endTime = snapDuration;
+			rate = restTime / snapDuration;
+		}
+	}
+
+	@Override
+	public float getDisplacement(float time) {
+		return displacement * (1 - SliderMath.expNegative(rate * time));
+	}
+
+	@Override
+	public boolean isFinished(float time) {
+		return time >= endTime;
+	}
+}
@@ -0,0 +1,326 @@
+package tech.mingxi.library.slider;
+
+import android.content.ContentResolver;
+import android.os.Trace;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * process-wide numbers of image loading by all {@link PageManager}s, grouped by uri scheme, to
+ * tune sample sizes and cache budgets from real data. recording only updates atomic counters,
+ * failures are rare enough to be counted in a map.
+ * <p>
+ * decode stages can also be shown in systrace as "MXSlider:bounds", "MXSlider:decode",
+ * "MXSlider:crop" and "MXSlider:disk", see {@link #setTraceEnabled(boolean)}.
+ */
+public class DecodeMetrics {
+	static final int SCHEME_FILE = 0;
+	static final int SCHEME_ASSETS = 1;
+	static final int SCHEME_CONTENT = 2;
+	static final int SCHEME_ANDROID_RESOURCE = 3;
+	private static final int SCHEME_COUNT = 4;
+	/**
+	 * inSampleSize is a power of 2, 1 to 2^(SAMPLE_SIZE_COUNT - 1) are counted separately and
+	 * larger ones are counted as the largest
+	 */
+	public static final int SAMPLE_SIZE_COUNT = 8;
+	static final String TRACE_BOUNDS = "MXSlider:bounds";
+	static final String TRACE_DECODE = "MXSlider:decode";
+	static final String TRACE_CROP = "MXSlider:crop";
+	static final String TRACE_DISK = "MXSlider:disk";
+	/**
+	 * failure type of a decoder returning null without being cancelled, usually unsupported data
+	 */
+	public static final String FAILURE_NO_BITMAP = "no bitmap";
+	private static DecodeMetrics instance;
+
+	private final AtomicLongArray memoryHitCount = new AtomicLongArray(SCHEME_COUNT);
+	private final AtomicLongArray diskHitCount = new AtomicLongArray(SCHEME_COUNT);
+	private final AtomicLongArray decodeCount = new AtomicLongArray(SCHEME_COUNT);
+	private final AtomicLongArray cancelCount = new AtomicLongArray(SCHEME_COUNT);
+	private final AtomicLongArray streamOpenCount = new AtomicLongArray(SCHEME_COUNT);
+	private final AtomicLongArray bytesRead = new AtomicLongArray(SCHEME_COUNT);
+	private final AtomicLongArray decodedBytes = new AtomicLongArray(SCHEME_COUNT);
+	private final AtomicLongArray sampleSizeCount = new AtomicLongArray(SCHEME_COUNT * SAMPLE_SIZE_COUNT);
+	private final AtomicLongArray boundsNanos = new AtomicLongArray(SCHEME_COUNT);
+	private final AtomicLongArray decodeNanos = new AtomicLongArray(SCHEME_COUNT);
+	private final AtomicLongArray cropNanos = new AtomicLongArray(SCHEME_COUNT);
+	/**
+	 * failure type to count, for each scheme
+	 */
+	private final HashMap<String, Long>[] failures;
+	private volatile boolean traceEnabled = false;
+
+	public static synchronized DecodeMetrics getInstance() {
+		if (instance == null) {
+			instance = new DecodeMetrics();
+		}
+		return instance;
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	DecodeMetrics() {
+		failures = new HashMap[SCHEME_COUNT];
+		for (int i = 0; i < SCHEME_COUNT; i++) {
+			failures[i] = new HashMap<>();
+		}
+	}
+
+	/**
+	 * @param traceEnabled whether decode stages are wrapped in {@link Trace} sections
+	 */
+	public void setTraceEnabled(boolean traceEnabled) {
+		this.traceEnabled = traceEnabled;
+	}
+
+	public boolean isTraceEnabled() {
+		return traceEnabled;
+	}
+
+	public Snapshot snapshot() {
+		return new Snapshot(this);
+	}
+
+	public void reset() {
+		for (int i = 0; i < SCHEME_COUNT; i++) {
+			memoryHitCount.set(i, 0);
+			diskHitCount.set(i, 0);
+			decodeCount.set(i, 0);
+			cancelCount.set(i, 0);
+			streamOpenCount.set(i, 0);
+			bytesRead.set(i, 0);
+			decodedBytes.set(i, 0);
+			boundsNanos.set(i, 0);
+			decodeNanos.set(i, 0);
+			cropNanos.set(i, 0);
+			synchronized (failures[i]) {
+				failures[i].clear();
+			}
+		}
+		for (int i = 0; i < sampleSizeCount.length(); i++) {
+			sampleSizeCount.set(i, 0);
+		}
+	}
+
+	/**
+	 * @return index of a supported scheme, or -1
+	 */
+	static int indexOf(String scheme) {
+		if (ContentResolver.SCHEME_FILE.equals(scheme)) {
+			return SCHEME_FILE;
+		} else if (MXSlider.SCHEME_ASSETS.equals(scheme)) {
+			return SCHEME_ASSETS;
+		} else if (ContentResolver.SCHEME_CONTENT.equals(scheme)) {
+			return SCHEME_CONTENT;
+		} else if (ContentResolver.SCHEME_ANDROID_RESOURCE.equals(scheme)) {
+			return SCHEME_ANDROID_RESOURCE;
+		}
+		return -1;
+	}
+
+	void beginTrace(String section) {
+		if (traceEnabled) {
+			Trace.beginSection(section);
+		}
+	}
+
+	void endTrace() {
+		if (traceEnabled) {
+			Trace.endSection();
+		}
+	}
+
+	void recordMemoryHit(int scheme) {
+		memoryHitCount.incrementAndGet(scheme);
+	}
+
+	void recordDiskHit(int scheme) {
+		diskHitCount.incrementAndGet(scheme);
+	}
+
+	void recordStreamOpen(int scheme) {
+		streamOpenCount.incrementAndGet(scheme);
+	}
+
+	void recordBytesRead(int scheme, long bytes) {
+		bytesRead.addAndGet(scheme, bytes);
+	}
+
+	void recordBounds(int scheme, long nanos) {
+		boundsNanos.addAndGet(scheme, nanos);
+	}
+
+	void recordDecode(int scheme, int sampleSize, long bytes, long nanos) {
+		decodeCount.incrementAndGet(scheme);
+		decodedBytes.addAndGet(scheme, bytes);
+		decodeNanos.addAndGet(scheme, nanos);
+		int sampleSizeIndex = Math.min(SAMPLE_SIZE_COUNT - 1, 31 - Integer.numberOfLeadingZeros(Math.max(1, sampleSize)));
+		sampleSizeCount.incrementAndGet(scheme * SAMPLE_SIZE_COUNT + sampleSizeIndex);
+	}
+
+	void recordCrop(int scheme, long nanos) {
+		cropNanos.addAndGet(scheme, nanos);
+	}
+
+	void recordCancel(int scheme) {
+		cancelCount.incrementAndGet(scheme);
+	}
+
+	void recordFailure(int scheme, String type) {
+		HashMap<String, Long> map = failures[scheme];
+		synchronized (map) {
+			Long count = map.get(type);
+			map.put(type, count == null ? 1 : count + 1);
+		}
+	}
+
+	/**
+	 * immutable copy of {@link DecodeMetrics}. schemes are the ones supported by MXSlider:
+	 * {@link ContentResolver#SCHEME_FILE}, {@link MXSlider#SCHEME_ASSETS},
+	 * {@link ContentResolver#SCHEME_CONTENT} and {@link ContentResolver#SCHEME_ANDROID_RESOURCE}.
+	 * all getters return 0 for other schemes.
+	 */
+	public static final class Snapshot {
+		private final long[] memoryHitCount;
+		private final long[] diskHitCount;
+		private final long[] decodeCount;
+		private final long[] cancelCount;
+		private final long[] streamOpenCount;
+		private final long[] bytesRead;
+		private final long[] decodedBytes;
+		private final long[] sampleSizeCount;
+		private final long[] boundsNanos;
+		private final long[] decodeNanos;
+		private final long[] cropNanos;
+		private final Map<String, Long>[] failures;
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private Snapshot(DecodeMetrics metrics) {
+			memoryHitCount = copy(metrics.memoryHitCount);
+			diskHitCount = copy(metrics.diskHitCount);
+			decodeCount = copy(metrics.decodeCount);
+			cancelCount = copy(metrics.cancelCount);
+			streamOpenCount = copy(metrics.streamOpenCount);
+			bytesRead = copy(metrics.bytesRead);
+			decodedBytes = copy(metrics.decodedBytes);
+			sampleSizeCount = copy(metrics.sampleSizeCount);
+			boundsNanos = copy(metrics.boundsNanos);
+			decodeNanos = copy(metrics.decodeNanos);
+			cropNanos = copy(metrics.cropNanos);
+			failures = new Map[SCHEME_COUNT];
+			for (int i = 0; i < SCHEME_COUNT; i++) {
+				synchronized (metrics.failures[i]) {
+					failures[i] = new HashMap<>(metrics.failures[i]);
+				}
+			}
+		}
+
+		private static long[] copy(AtomicLongArray array) {
+			long[] copy = new long[array.length()];
+			for (int i = 0; i < copy.length; i++) {
+				copy[i] = array.get(i);
+			}
+			return copy;
+		}
+
+		private static long get(long[] array, String scheme) {
+			int index = indexOf(scheme);
+			return index < 0 ? 0 : array[index];
+		}
+
+		private static long sum(long[] array) {
+			long sum = 0;
+			for (long value : array) {
+				sum += value;
+			}
+			return sum;
+		}
+
+		/**
+		 * @return number of bitmaps served by {@link BitmapMemoryCache}
+		 */
+		public long getMemoryHitCount(String scheme) {
+			return get(memoryHitCount, scheme);
+		}
+
+		/**
+		 * @return number of bitmaps served by thumbnail cache on disk
+		 */
+		public long getDiskHitCount(String scheme) {
+			return get(diskHitCount, scheme);
+		}
+
+		/**
+		 * @return number of bitmaps decoded from source
+		 */
+		public long getDecodeCount(String scheme) {
+			return get(decodeCount, scheme);
+		}
+
+		public long getCancelCount(String scheme) {
+			return get(cancelCount, scheme);
+		}
+
+		public long getStreamOpenCount(String scheme) {
+			return get(streamOpenCount, scheme);
+		}
+
+		/**
+		 * @return bytes read from source streams, whole length of assets opened
+		 */
+		public long getBytesRead(String scheme) {
+			return get(bytesRead, scheme);
+		}
+
+		/**
+		 * @return total size of decoded bitmaps before cropping, in bytes
+		 */
+		public long getDecodedBytes(String scheme) {
+			return get(decodedBytes, scheme);
+		}
+
+		/**
+		 * @param sampleSize a power of 2
+		 * @return number of decodes which used this inSampleSize
+		 */
+		public long getSampleSizeCount(String scheme, int sampleSize) {
+			int index = indexOf(scheme);
+			if (index < 0 || sampleSize < 1 || Integer.bitCount(sampleSize) != 1) {
+				return 0;
+			}
+			int sampleSizeIndex = 31 - Integer.numberOfLeadingZeros(sampleSize);
+			return sampleSizeIndex < SAMPLE_SIZE_COUNT ? sampleSizeCount[index * SAMPLE_SIZE_COUNT + sampleSizeIndex] : 0;
+		}
+
+		public long getBoundsNanos(String scheme) {
+			return get(boundsNanos, scheme);
+		}
+
+		public long getDecodeNanos(String scheme) {
+			return get(decodeNanos, scheme);
+		}
+
+		public long getCropNanos(String scheme) {
+			return get(cropNanos, scheme);
+		}
+
+		/**
+		 * @return failure type, which is the exception's class name or {@link #FAILURE_NO_BITMAP},
+		 * to number of failures
+		 */
+		public Map<String, Long> getFailures(String scheme) {
+			int index = indexOf(scheme);
+			return index < 0 ? new HashMap<String, Long>() : new HashMap<>(failures[index]);
+		}
+
+		public long getTotalStreamOpenCount() {
+			return sum(streamOpenCount);
+		}
+
+		public long getTotalBytesRead() {
+			return sum(bytesRead);
+		}
+	}
+}
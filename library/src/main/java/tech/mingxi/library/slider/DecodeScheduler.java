@@ -0,0 +1,170 @@
+package tech.mingxi.library.slider;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * runs decode tasks of a {@link PageManager} nearest to the current page first, whatever order
+ * they were submitted in.
+ * <p>
+ * pending tasks wait in a priority queue ordered by wrap-aware distance from the focus, which
+ * is the current page and optionally the page a fling lands on. every submitted task posts one
+ * drain to the executor, which runs the nearest pending task at the time it gets a thread, so
+ * the executor can be shared by several schedulers. moving the focus reorders pending tasks and
+ * drops the ones outside the window.
+ * <p>
+ * {@link #submit}, {@link #setFocus} and {@link #remove} are called on one thread, tasks run on
+ * the executor's threads.
+ */
+class DecodeScheduler {
+	/**
+	 * priority of tasks submitted before any focus is set
+	 */
+	private static final int UNKNOWN_DISTANCE = Integer.MAX_VALUE;
+
+	abstract static class Task implements Runnable {
+		final int index;
+		/**
+		 * distance from focus in pages, smaller runs first
+		 */
+		private int distance = UNKNOWN_DISTANCE;
+		/**
+		 * submission order, which breaks ties of distance
+		 */
+		private long sequence;
+
+		Task(int index) {
+			this.index = index;
+		}
+
+		/**
+		 * called on the thread of {@link DecodeScheduler#setFocus} when the task is dropped
+		 * without running because it fell outside of the window
+		 */
+		void onDropped() {
+		}
+	}
+
+	private final Executor executor;
+	private final PriorityQueue<Task> pending = new PriorityQueue<>(16, new Comparator<Task>() {
+		@Override
+		public int compare(Task a, Task b) {
+			if (a.distance != b.distance) {
+				return a.distance < b.distance ? -1 : 1;
+			}
+			return a.sequence < b.sequence ? -1 : (a.sequence == b.sequence ? 0 : 1);
+		}
+	});
+	/**
+	 * pending tasks are moved here while being reordered, kept to avoid allocating every time
+	 */
+	private final ArrayList<Task> reorderBuffer = new ArrayList<>();
+	private final Runnable drain = new Runnable() {
+		@Override
+		public void run() {
+			Task task;
+			synchronized (pending) {
+				task = pending.poll();
+			}
+			if (task != null) {
+				task.run();
+			}
+		}
+	};
+	private long nextSequence = 0;
+	private int center = -1;
+	/**
+	 * -1 if there is no second center
+	 */
+	private int landingIndex = -1;
+	private int radius = UNKNOWN_DISTANCE;
+	private int pageCount = 0;
+	private boolean loop = false;
+
+	DecodeScheduler(Executor executor) {
+		this.executor = executor;
+	}
+
+	void submit(Task task) {
+		synchronized (pending) {
+			task.distance = getDistance(task.index);
+			task.sequence = nextSequence++;
+			pending.add(task);
+		}
+		executor.execute(drain);
+	}
+
+	/**
+	 * reorder pending tasks by distance from the new focus and drop the ones farther than radius
+	 *
+	 * @param center       current page
+	 * @param landingIndex page slider is moving to, -1 if none
+	 * @param radius       window on each side of center and landingIndex
+	 */
+	void setFocus(int center, int landingIndex, int radius, int pageCount, boolean loop) {
+		synchronized (pending) {
+			if (center == this.center && landingIndex == this.landingIndex && radius == this.radius && pageCount == this.pageCount && loop == this.loop) {
+				return;
+			}
+			this.center = center;
+			this.landingIndex = landingIndex;
+			this.radius = radius;
+			this.pageCount = pageCount;
+			this.loop = loop;
+			reorderBuffer.addAll(pending);
+			pending.clear();
+			for (int i = 0; i < reorderBuffer.size(); i++) {
+				Task task = reorderBuffer.get(i);
+				task.distance = getDistance(task.index);
+				if (task.distance > radius) {
+					task.onDropped();
+				} else {
+					pending.add(task);
+				}
+			}
+			reorderBuffer.clear();
+		}
+	}
+
+	/**
+	 * @return whether a pending task of page at index was removed before running
+	 */
+	boolean remove(int index) {
+		synchronized (pending) {
+			Iterator<Task> iterator = pending.iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().index == index) {
+					iterator.remove();
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	void clear() {
+		synchronized (pending) {
+			pending.clear();
+		}
+	}
+
+	int getPendingCount() {
+		synchronized (pending) {
+			return pending.size();
+		}
+	}
+
+	private int getDistance(int index) {
+		if (center < 0 || pageCount <= 0) {
+			return UNKNOWN_DISTANCE;
+		}
+		int distance = SliderMath.getDistance(index, center, pageCount, loop);
+		if (landingIndex >= 0) {
+			distance = Math.min(distance, SliderMath.getDistance(index, landingIndex, pageCount, loop));
+		}
+		return distance;
+	}
+}
@@ -0,0 +1,244 @@
+package tech.mingxi.library.slider;
+
+import android.support.v4.view.ViewPager;
+
+/**
+ * opt-in frame time metrics of a {@link MXSlider}, see {@link MXSlider#setDrawMetrics(DrawMetrics)}.
+ * <p>
+ * time of every draw phase is recorded into a fixed histogram, so recording never allocates.
+ * bucket i counts durations below {@link #getBucketUpperBoundNanos(int)}, i.e. about 0.13ms * 2^i,
+ * and the last bucket counts everything longer.
+ * <p>
+ * frames drawn while dragging or settling are also checked against the display's frame interval:
+ * <ul>
+ * <li>a frame is janky if drawing it took longer than a frame interval, or if it was drawn more
+ * than 1.5 frame intervals after previous frame while settling</li>
+ * <li>while settling, every frame interval missed between two frames counts as a dropped frame.
+ * dragging is not counted, as frames are only drawn when finger moves</li>
+ * </ul>
+ * all methods must be called on main thread.
+ */
+public class DrawMetrics {
+	/**
+	 * whole onDraw
+	 */
+	public static final int PHASE_FRAME = 0;
+	public static final int PHASE_PAGE_IMAGES = 1;
+	public static final int PHASE_SHADOW = 2;
+	public static final int PHASE_PAGE_TEXT = 3;
+	/**
+	 * one step of settling, which runs in a frame callback before onDraw
+	 */
+	public static final int PHASE_SETTLING = 4;
+	public static final int PHASE_COUNT = 5;
+	public static final int BUCKET_COUNT = 16;
+	/**
+	 * upper bound of first bucket is 2^17ns, about 0.13ms
+	 */
+	private static final int FIRST_BUCKET_SHIFT = 17;
+	private static final long DEFAULT_FRAME_INTERVAL_NANOS = 1000000000L / 60;
+
+	private final long[][] buckets = new long[PHASE_COUNT][BUCKET_COUNT];
+	private final long[] counts = new long[PHASE_COUNT];
+	private final long[] totalNanos = new long[PHASE_COUNT];
+	private final long[] maxNanos = new long[PHASE_COUNT];
+	private long movingFrameCount = 0;
+	private long jankyFrameCount = 0;
+	private long droppedFrameCount = 0;
+	private long frameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+	/**
+	 * start of previous frame while settling, 0 if previous frame was not settling
+	 */
+	private long lastSettlingFrameStartNanos = 0;
+	private boolean moving = false;
+	private OnMotionEndListener onMotionEndListener;
+
+	public static long getBucketUpperBoundNanos(int bucket) {
+		return bucket >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << (FIRST_BUCKET_SHIFT + bucket);
+	}
+
+	/**
+	 * @param frameIntervalNanos expected time between two frames. MXSlider sets it from display's
+	 *                           refresh rate when attached to window
+	 */
+	public void setFrameIntervalNanos(long frameIntervalNanos) {
+		if (frameIntervalNanos <= 0) {
+			throw new IllegalArgumentException("frameIntervalNanos must be positive");
+		}
+		this.frameIntervalNanos = frameIntervalNanos;
+	}
+
+	public long getFrameIntervalNanos() {
+		return frameIntervalNanos;
+	}
+
+	/**
+	 * @param onMotionEndListener called with a snapshot every time slider stops after dragging or settling
+	 */
+	public void setOnMotionEndListener(OnMotionEndListener onMotionEndListener) {
+		this.onMotionEndListener = onMotionEndListener;
+	}
+
+	/**
+	 * @return copy of everything recorded since creation or last {@link #reset()}
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(this);
+	}
+
+	public void reset() {
+		for (int phase = 0; phase < PHASE_COUNT; phase++) {
+			for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+				buckets[phase][bucket] = 0;
+			}
+			counts[phase] = 0;
+			totalNanos[phase] = 0;
+			maxNanos[phase] = 0;
+		}
+		movingFrameCount = 0;
+		jankyFrameCount = 0;
+		droppedFrameCount = 0;
+	}
+
+	/**
+	 * record time since startNanos as phase
+	 *
+	 * @return current time, which is start of next phase
+	 */
+	long lap(int phase, long startNanos) {
+		long now = System.nanoTime();
+		record(phase, now - startNanos);
+		return now;
+	}
+
+	void record(int phase, long nanos) {
+		//floor(log2(nanos)) - FIRST_BUCKET_SHIFT + 1, or 0 for shorter durations
+		int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(nanos >> FIRST_BUCKET_SHIFT));
+		buckets[phase][bucket]++;
+		counts[phase]++;
+		totalNanos[phase] += nanos;
+		if (nanos > maxNanos[phase]) {
+			maxNanos[phase] = nanos;
+		}
+	}
+
+	/**
+	 * record a whole frame
+	 *
+	 * @param startState scroll state when frame started
+	 * @param endState   scroll state when frame ended, settling may end during a frame
+	 */
+	void recordFrame(int startState, long startNanos, long endNanos, int endState) {
+		record(PHASE_FRAME, endNanos - startNanos);
+		boolean settling = startState == ViewPager.SCROLL_STATE_SETTLING;
+		if (startState != ViewPager.SCROLL_STATE_IDLE) {
+			moving = true;
+			movingFrameCount++;
+			boolean janky = endNanos - startNanos > frameIntervalNanos;
+			if (settling && lastSettlingFrameStartNanos != 0) {
+				long interval = startNanos - lastSettlingFrameStartNanos;
+				if (interval * 2 > frameIntervalNanos * 3) {
+					janky = true;
+				}
+				//rounded number of frame intervals passed, minus the one this frame is drawn in
+				droppedFrameCount += Math.max(0, (interval + frameIntervalNanos / 2) / frameIntervalNanos - 1);
+			}
+			if (janky) {
+				jankyFrameCount++;
+			}
+		}
+		lastSettlingFrameStartNanos = settling && endState == ViewPager.SCROLL_STATE_SETTLING ? startNanos : 0;
+		if (moving && endState == ViewPager.SCROLL_STATE_IDLE) {
+			moving = false;
+			if (onMotionEndListener != null) {
+				onMotionEndListener.onMotionEnd(snapshot());
+			}
+		}
+	}
+
+	/**
+	 * immutable copy of {@link DrawMetrics}
+	 */
+	public static final class Snapshot {
+		private final long[][] buckets = new long[PHASE_COUNT][];
+		private final long[] counts;
+		private final long[] totalNanos;
+		private final long[] maxNanos;
+		private final long movingFrameCount;
+		private final long jankyFrameCount;
+		private final long droppedFrameCount;
+
+		private Snapshot(DrawMetrics metrics) {
+			for (int phase = 0; phase < PHASE_COUNT; phase++) {
+				buckets[phase] = metrics.buckets[phase].clone();
+			}
+			counts = metrics.counts.clone();
+			totalNanos = metrics.totalNanos.clone();
+			maxNanos = metrics.maxNanos.clone();
+			movingFrameCount = metrics.movingFrameCount;
+			jankyFrameCount = metrics.jankyFrameCount;
+			droppedFrameCount = metrics.droppedFrameCount;
+		}
+
+		/**
+		 * @return number of times phase was recorded
+		 */
+		public long getCount(int phase) {
+			return counts[phase];
+		}
+
+		public long getBucketCount(int phase, int bucket) {
+			return buckets[phase][bucket];
+		}
+
+		public long getTotalNanos(int phase) {
+			return totalNanos[phase];
+		}
+
+		public long getMaxNanos(int phase) {
+			return maxNanos[phase];
+		}
+
+		public long getAverageNanos(int phase) {
+			return counts[phase] == 0 ? 0 : totalNanos[phase] / counts[phase];
+		}
+
+		/**
+		 * @param percentile in [0, 100]
+		 * @return upper bound of the bucket in which percentile falls, 0 if phase was never recorded
+		 */
+		public long getPercentileNanos(int phase, double percentile) {
+			if (counts[phase] == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(counts[phase] * percentile / 100);
+			long count = 0;
+			for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+				count += buckets[phase][bucket];
+				if (count >= rank) {
+					return Math.min(getBucketUpperBoundNanos(bucket), maxNanos[phase]);
+				}
+			}
+			return maxNanos[phase];
+		}
+
+		/**
+		 * @return number of frames drawn while dragging or settling
+		 */
+		public long getMovingFrameCount() {
+			return movingFrameCount;
+		}
+
+		public long getJankyFrameCount() {
+			return jankyFrameCount;
+		}
+
+		public long getDroppedFrameCount() {
+			return droppedFrameCount;
+		}
+	}
+
+	public interface OnMotionEndListener {
+		void onMotionEnd(Snapshot snapshot);
+	}
+}
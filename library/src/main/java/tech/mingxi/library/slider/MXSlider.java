@@ -7,8 +7,8 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.LinearGradient;
 import android.graphics.Paint;
+import android.graphics.Picture;
 import android.graphics.Rect;
-import android.graphics.Region;
 import android.graphics.Typeface;
 import android.net.Uri;
 import android.os.Build;
@@ -19,9 +19,13 @@ import android.text.StaticLayout;
 import android.text.TextPaint;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseArray;
+import android.view.Choreographer;
+import android.view.Display;
 import android.view.MotionEvent;
 import android.view.VelocityTracker;
 import android.view.View;
+import android.view.ViewConfiguration;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -88,11 +92,13 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 	private static final float DEFAULT_SIDE_WIDTH = 24f;
 
 	private static boolean DEBUG = false;
-	private List<Rect> debugRects;
+	private static final int PAINT_FLAGS = Paint.FILTER_BITMAP_FLAG | Paint.DITHER_FLAG | Paint.ANTI_ALIAS_FLAG;
+	private static final int TEXT_SHADOW_COLOR = 0x7F000000;
 	/**
-	 * duration to settling/flinging to target page
+	 * room around cached text for its shadow, in px
 	 */
-	private static final long SETTLING_DURATION = 250;
+	private static final int TEXT_LAYER_PADDING = 8;
+	private List<Rect> debugRects;
 	/**
 	 * absolute velocity threshold of fling in 1 second
 	 */
@@ -158,7 +164,7 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 	 */
 	private boolean loop = true;
 	/**
-	 * if true, refreshBitmaps() will be triggered when onLayout() is called.
+	 * if true, bitmaps will be refreshed for the new size when onLayout() is called and size changed.
 	 * it is recommended to turn this off if this view's size changes from time to time.
 	 */
 	private boolean refreshBitmapsOnLayout = true;
@@ -167,7 +173,35 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 	 * and will be set to false when settling animation is done and user touches screen again.
 	 */
 	private boolean userTouchCanceled = false;
-	private Paint paint;
+	/**
+	 * one pre-configured paint per draw layer, so drawing does not switch paint state back and forth
+	 */
+	private Paint bitmapPaint;
+	/**
+	 * draws cached text layers pixel for pixel, without bitmap filtering
+	 */
+	private Paint textLayerPaint;
+	private Paint placeholderPaint;
+	private Paint dimPaint;
+	private Paint shadowPaint;
+	private TextPaint titlePaint;
+	private TextPaint subtitlePaint;
+	private Paint debugPaint;
+	/**
+	 * cached title and subtitle layouts of pages around swipePosition, keyed by page index
+	 */
+	private final SparseArray<PageTextLayout> textLayouts = new SparseArray<>();
+	/**
+	 * cached source rects of pages around swipePosition, keyed by page index
+	 */
+	private final SparseArray<PageGeometry> pageGeometries = new SparseArray<>();
+	/**
+	 * indices the keys of textLayouts and pageGeometries move to through the changes of pages
+	 * reported so far, -1 once their page is gone. null outside of a batch of changes, the
+	 * arrays are rebuilt once in {@link #onPageListChangesApplied()}
+	 */
+	private int[] movedTextLayoutKeys;
+	private int[] movedPageGeometryKeys;
 
 	private int[] shadowGradientColors;
 
@@ -177,6 +211,10 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 	 */
 	private LinearGradient shadowGradient;
 	private PageManager pageManager;
+	/**
+	 * null unless frame times are recorded
+	 */
+	private DrawMetrics drawMetrics;
 	private OnSwipeListener onSwipeListener;
 
 	private int scrollState = ViewPager.SCROLL_STATE_IDLE;
@@ -218,10 +256,10 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 		setPropertiesFromAttribute(attrs);
 
 		setWillNotDraw(false);
+		maxFlingVelocity = ViewConfiguration.get(getContext()).getScaledMaximumFlingVelocity();
 		initPaint();
 		if (DEBUG) {
 			debugRects = new ArrayList<>();
-			paint.setStyle(Paint.Style.STROKE);
 		}
 		setPageManager(new PageManager(getContext(), this));
 	}
@@ -305,10 +343,31 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 	}
 
 	private void initPaint() {
-		paint = new Paint();
-		paint.setFilterBitmap(true);
-		paint.setDither(true);
-		paint.setAntiAlias(true);
+		bitmapPaint = new Paint(PAINT_FLAGS);
+		textLayerPaint = new Paint(PAINT_FLAGS & ~Paint.FILTER_BITMAP_FLAG);
+		placeholderPaint = new Paint(PAINT_FLAGS);
+		placeholderPaint.setStyle(Paint.Style.FILL);
+		placeholderPaint.setColor(Color.GRAY);
+		dimPaint = new Paint(PAINT_FLAGS);
+		dimPaint.setStyle(Paint.Style.FILL);
+		dimPaint.setColor(Color.BLACK);
+		shadowPaint = new Paint(PAINT_FLAGS);
+		shadowPaint.setStyle(Paint.Style.FILL);
+		titlePaint = createTextPaint(Typeface.create(Typeface.MONOSPACE, Typeface.BOLD), titleFontSize);
+		subtitlePaint = createTextPaint(Typeface.create(Typeface.SANS_SERIF, Typeface.BOLD), subtitleFontSize);
+		debugPaint = new Paint(PAINT_FLAGS);
+		debugPaint.setStyle(Paint.Style.STROKE);
+	}
+
+	private TextPaint createTextPaint(Typeface typeface, float textSize) {
+		TextPaint textPaint = new TextPaint(PAINT_FLAGS);
+		textPaint.setShadowLayer(2, 2, 2, TEXT_SHADOW_COLOR);
+		textPaint.setTextSize(textSize);
+		textPaint.setColor(Color.WHITE);
+		textPaint.setTypeface(typeface);
+		textPaint.setStyle(Paint.Style.FILL);
+		textPaint.setTextAlign(Paint.Align.CENTER);
+		return textPaint;
 	}
 
 	private void setPageManager(PageManager pageManager) {
@@ -323,15 +382,17 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 	public void setIndex(int index, boolean animated) {
 		if (animated) {
 			userTouchCanceled = true;
-			scrollState = ViewPager.SCROLL_STATE_SETTLING;
-			isFling = false;
-			settlingStartSwipePosition = swipePosition;
-			settlingDisplacement = getWidth() * (swipePosition - index);
+			startSettling(false, getWidth() * (swipePosition - index), 0);
 		} else {
+			if (scrollState == ViewPager.SCROLL_STATE_SETTLING) {
+				stopSettling();
+				scrollState = ViewPager.SCROLL_STATE_IDLE;
+			}
 			swipePosition = index;
 		}
 		invalidate();
 		triggerSwipeListener();
+		updateDecodeQuality(System.nanoTime());
 	}
 
 	public void setIndex(int index) {
@@ -348,6 +409,24 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 	}
 
 	VelocityTracker velocityTracker;
+	/**
+	 * in px per second, keeps a glitch of velocity tracking from flinging across the whole list
+	 */
+	private int maxFlingVelocity;
+	/**
+	 * swipe speed in pages per second above which pages are decoded in low quality while moving,
+	 * they are decoded in full quality again below half of it
+	 */
+	private static final float LOW_QUALITY_SPEED = 4;
+	/**
+	 * speed is measured over at least this interval, so it is not noisy between touch events
+	 */
+	private static final long SPEED_SAMPLE_NANOS = 16000000L;
+	private float speedSampleSwipePosition;
+	/**
+	 * 0 if speed is not being measured
+	 */
+	private long speedSampleTimeNanos = 0;
 	private float start_x;
 	private float start_y;
 	private float lastSwipePosition = 0;
@@ -369,7 +448,7 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 				if (userTouchCanceled) {
 					return false;
 				}
-				settlingStarted = false;
+				stopSettling();
 			} else {
 				userTouchCanceled = false;
 			}
@@ -394,6 +473,7 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 			swipePosition = (lastSwipePosition + start_x - x) / getWidth();
 			fixSwipePosition();
 			triggerSwipeListener();
+			updateDecodeQuality(System.nanoTime());
 			if (lastFrameSwipePosition != swipePosition) {
 				lastFrameSwipePosition = swipePosition;
 				invalidate();
@@ -404,24 +484,20 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 			}
 			float x = event.getX();
 			float y = event.getY();
-			velocityTracker.computeCurrentVelocity(1000);
+			velocityTracker.computeCurrentVelocity(1000, maxFlingVelocity);
 			float velocity = velocityTracker.getXVelocity();
-			scrollState = ViewPager.SCROLL_STATE_SETTLING;
-			isFling = Math.abs(velocity) >= FLING_THRESHOLD;
-			settlingStartSwipePosition = swipePosition;
+			boolean isFling = Math.abs(velocity) >= FLING_THRESHOLD;
 			if (isFling) {
-				settlingStartVelocity = velocity / 1000;
-				int index1 = (int) swipePosition;
-				if (velocity > 0) {//swipe to previous image
-					settlingDisplacement = getWidth() * (swipePosition - index1);//>0
-				} else {
-					settlingDisplacement = getWidth() * ((swipePosition - index1) - 1);//<0
-				}
-				settlingAcceleration = -settlingStartVelocity * settlingStartVelocity / (2 * settlingDisplacement);
+				//velocity > 0 swipes to previous image
+				float flingVelocity = velocity / 1000;
+				float flingPages = settlingEngine.getPhysics().getFlingDistance(flingVelocity) / getWidth();
+				int index1 = SliderMath.getFlingTargetIndex(swipePosition, flingPages, velocity > 0, pageManager.getPageCount(), loop);
+				startSettling(true, getWidth() * (swipePosition - index1), flingVelocity);
 			} else {
 				int index1 = (int) (swipePosition >= 0 ? swipePosition + 0.5 : swipePosition - 0.5);//slide to nearest position
-				settlingDisplacement = getWidth() * (swipePosition - index1);
+				startSettling(false, getWidth() * (swipePosition - index1), 0);
 			}
+			updateDecodeQuality(System.nanoTime());
 
 			invalidate();
 			lastSwipePosition = swipePosition * getWidth();
@@ -433,23 +509,7 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 	}
 
 	private void fixSwipePosition() {
-		if (loop) {
-			if (swipePosition < 0) {
-				if (swipePosition % pageManager.getPageCount() == 0) {
-					swipePosition = 0;
-				} else {
-					swipePosition = pageManager.getPageCount() + swipePosition % pageManager.getPageCount();
-				}
-			} else if (swipePosition > pageManager.getPageCount() - 1) {
-				swipePosition = swipePosition % pageManager.getPageCount();
-			}
-		} else {
-			if (swipePosition < 0) {
-				swipePosition = 0;
-			} else if (swipePosition > pageManager.getPageCount() - 1) {
-				swipePosition = pageManager.getPageCount() - 1;
-			}
-		}
+		swipePosition = SliderMath.fixSwipePosition(swipePosition, pageManager.getPageCount(), loop);
 	}
 
 	public float getSideTopMarginPercentage() {
@@ -515,6 +575,8 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 
 	public void setTitleFontSize(float titleFontSize) {
 		this.titleFontSize = titleFontSize;
+		titlePaint.setTextSize(titleFontSize);
+		textLayouts.clear();
 		invalidate();
 	}
 
@@ -524,6 +586,8 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 
 	public void setSubtitleFontSize(float subtitleFontSize) {
 		this.subtitleFontSize = subtitleFontSize;
+		subtitlePaint.setTextSize(subtitleFontSize);
+		textLayouts.clear();
 		invalidate();
 	}
 
@@ -533,9 +597,23 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 
 	public void setLoop(boolean loop) {
 		this.loop = loop;
+		pageManager.setLoop(loop);
 		invalidate();
 	}
 
+	public SettlingPhysics getSettlingPhysics() {
+		return settlingEngine.getPhysics();
+	}
+
+	/**
+	 * @param settlingPhysics motion of settling to a page, {@link ConstantDecelerationPhysics} by default.
+	 *                        see also {@link SpringPhysics} and {@link DecayPhysics}. takes effect from
+	 *                        next settling
+	 */
+	public void setSettlingPhysics(SettlingPhysics settlingPhysics) {
+		settlingEngine.setPhysics(settlingPhysics);
+	}
+
 	public boolean isRefreshBitmapsOnLayout() {
 		return refreshBitmapsOnLayout;
 	}
@@ -544,6 +622,19 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 		this.refreshBitmapsOnLayout = refreshBitmapsOnLayout;
 	}
 
+	public DrawMetrics getDrawMetrics() {
+		return drawMetrics;
+	}
+
+	/**
+	 * start recording frame times into metrics, or stop if it is null. metrics can be read on
+	 * main thread any time, or be delivered through {@link DrawMetrics.OnMotionEndListener}.
+	 */
+	public void setDrawMetrics(DrawMetrics drawMetrics) {
+		this.drawMetrics = drawMetrics;
+		updateFrameInterval();
+	}
+
 	public void setOnSwipeListener(OnSwipeListener onSwipeListener) {
 		this.onSwipeListener = onSwipeListener;
 	}
@@ -580,53 +671,87 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 	}
 
 	/**
-	 * whether settling is triggered by user's fling
-	 */
-	private boolean isFling = false;
-	/**
-	 * whether settling parameters are initiated
+	 * motion of settling, advanced by {@link #settlingFrameCallback} on every frame
 	 */
-	private boolean settlingStarted = false;
-	/**
-	 * settling acceleration
-	 */
-	private float settlingAcceleration = 0;
-	/**
-	 * settling starting velocity
-	 */
-	private float settlingStartVelocity = 0;
-	/**
-	 * settling distance to go
-	 */
-	private float settlingDisplacement = 0;
-	/**
-	 * when settling started
-	 */
-	private long settlingStartTimestamp = 0;
-	/**
-	 * when settling should end
-	 */
-	private long settlingEndTimestamp = 0;
+	private final SettlingEngine settlingEngine = new SettlingEngine();
+	private final Choreographer.FrameCallback settlingFrameCallback = new Choreographer.FrameCallback() {
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			handleSettlingState(frameTimeNanos);
+		}
+	};
 	/**
 	 * swipe position when settling begins
 	 */
 	private float settlingStartSwipePosition = 0;
 
 	private Rect rectSrc = new Rect();
-	private Rect rectDst = new Rect();
 	private Rect rectClip = new Rect();
+	private Rect rectStrip = new Rect();
 	private Rect rectView = new Rect();
+	/**
+	 * at most 5 pages around swipePosition are drawn in a frame
+	 */
+	private final PageFrame[] pageFrames = {new PageFrame(), new PageFrame(), new PageFrame(), new PageFrame(), new PageFrame()};
+	private int pageFrameCount = 0;
+	/**
+	 * rows from this one to the bottom are covered by opaque part of shadow
+	 */
+	private int shadowOpaqueTop = Integer.MAX_VALUE;
 
 	@Override
 	protected void onDraw(Canvas canvas) {
 		super.onDraw(canvas);
 		int width = getWidth();
 		int height = getHeight();
+		DrawMetrics metrics = drawMetrics;
+		int startState = scrollState;
+		long frameStart = metrics == null ? 0 : System.nanoTime();
+		long time = frameStart;
 		drawPageImages(canvas, width, height);
+		if (metrics != null) {
+			time = metrics.lap(DrawMetrics.PHASE_PAGE_IMAGES, time);
+		}
 		drawShadow(canvas);
+		if (metrics != null) {
+			time = metrics.lap(DrawMetrics.PHASE_SHADOW, time);
+		}
 		drawPageText(canvas, width, height);
+		if (metrics != null) {
+			time = metrics.lap(DrawMetrics.PHASE_PAGE_TEXT, time);
+		}
+		if (metrics != null) {
+			metrics.recordFrame(startState, frameStart, time, scrollState);
+		}
+	}
+
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		updateFrameInterval();
 		if (scrollState == ViewPager.SCROLL_STATE_SETTLING) {
-			handleSettlingState();
+			Choreographer.getInstance().postFrameCallback(settlingFrameCallback);
+		}
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		Choreographer.getInstance().removeFrameCallback(settlingFrameCallback);
+	}
+
+	/**
+	 * set frame interval of settling and metrics from refresh rate of display this view is attached to
+	 */
+	private void updateFrameInterval() {
+		Display display = getDisplay();
+		if (display == null || display.getRefreshRate() <= 0) {
+			return;
+		}
+		long frameIntervalNanos = (long) (1000000000L / display.getRefreshRate());
+		settlingEngine.setFrameIntervalNanos(frameIntervalNanos);
+		if (drawMetrics != null) {
+			drawMetrics.setFrameIntervalNanos(frameIntervalNanos);
 		}
 	}
 
@@ -639,46 +764,26 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 			}
 			offset = index - swipePosition;
 			if (Math.abs(offset) < 1) {
+				PageTextLayout textLayout = getPageTextLayout(index, width);
+				if (textLayout == null) {
+					continue;
+				}
 				canvas.save();
 				canvas.skew(-(float) width / height, 0);
 				float factor = 0.02f;
 				canvas.translate(2 * width * offset, 0);
 				rectClip.set((int) (factor * width), 0, (int) (2 * (1 - factor) * width), height);
 				if (DEBUG) {
-					paint.setStyle(Paint.Style.FILL);
-					paint.setColor(index % 2 == 0 ? 0x3F00FF00 : 0x3FFF0000);
-					canvas.drawRect(rectClip, paint);
-					paint.setStyle(Paint.Style.STROKE);
+					debugPaint.setStyle(Paint.Style.FILL);
+					debugPaint.setColor(index % 2 == 0 ? 0x3F00FF00 : 0x3FFF0000);
+					canvas.drawRect(rectClip, debugPaint);
+					debugPaint.setStyle(Paint.Style.STROKE);
 				}
-				paint.setStyle(Paint.Style.FILL);
-				canvas.clipRect(rectClip, Region.Op.INTERSECT);
+				canvas.clipRect(rectClip);
 				canvas.translate(-(2 * width * offset), 0);
 				canvas.skew((float) width / height, 0);
-				paint.setShadowLayer(2, 2, 2, Color.parseColor("#7F000000"));
-				paint.setTextSize(titleFontSize);
-				paint.setColor(Color.WHITE);
-				paint.setTypeface(Typeface.create(Typeface.MONOSPACE, Typeface.BOLD));
-				paint.setStyle(Paint.Style.FILL);
-				paint.setTextAlign(Paint.Align.CENTER);
-				StaticLayout titleStaticLayout;
-				StaticLayout subtitleStaticLayout;
-				int titleHeight;
-				int subtitleHeight;
-				if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-					titleStaticLayout = StaticLayout.Builder.obtain(pageManager.getPage(index).getTitle(), 0, pageManager.getPage(index).getTitle().length(), new TextPaint(paint), width).build();
-				} else {
-					titleStaticLayout = new StaticLayout(pageManager.getPage(index).getTitle(), new TextPaint(paint), width, Layout.Alignment.ALIGN_NORMAL, 1.0f, 0.0f, false);
-				}
-				titleHeight = titleStaticLayout.getHeight();
-				paint.setTextSize(subtitleFontSize);
-				paint.setTypeface(Typeface.create(Typeface.SANS_SERIF, Typeface.BOLD));
-				if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-					subtitleStaticLayout = StaticLayout.Builder.obtain(pageManager.getPage(index).getSubtitle(), 0, pageManager.getPage(index).getSubtitle().length(), new TextPaint(paint), width).build();
-				} else {
-					subtitleStaticLayout = new StaticLayout(pageManager.getPage(index).getSubtitle(), new TextPaint(paint), width, Layout.Alignment.ALIGN_NORMAL, 1.0f, 0.0f, false);
-				}
-				subtitleHeight = subtitleStaticLayout.getHeight();
-				canvas.save();
+				int titleHeight = textLayout.titleLayout.getHeight();
+				int subtitleHeight = textLayout.subtitleLayout.getHeight();
 				switch (textPositionStyle) {
 					case CLASSIC:
 						canvas.translate(width / 2.0f + offset * 0.1f * width, height * textVerticalPosition - titleHeight);
@@ -687,135 +792,349 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 						canvas.translate(width / 2.0f + offset * 0.1f * width, (height - titleHeight - subtitleHeight) * textVerticalPosition);
 						break;
 				}
-				titleStaticLayout.draw(canvas);
-				canvas.translate(0, titleHeight + textVerticalSpacing);
-				subtitleStaticLayout.draw(canvas);
+				textLayout.draw(canvas);
 				canvas.restore();
-				paint.setShadowLayer(0, 0, 0, 0);
+			}
+		}
+	}
+
+	/**
+	 * @return cached layouts of page at index, rebuilt if page's text, font size, typeface or width
+	 * changed. null if page is not loaded yet
+	 */
+	private PageTextLayout getPageTextLayout(int index, int width) {
+		index = pageManager.resolveIndex(index);
+		Page page = index < 0 ? null : pageManager.getPage(index);
+		if (page == null) {
+			return null;
+		}
+		String title = page.getTitle();
+		String subtitle = page.getSubtitle();
+		PageTextLayout textLayout = textLayouts.get(index);
+		if (textLayout == null || !textLayout.matches(title, subtitle, width)) {
+			textLayout = new PageTextLayout(title, subtitle, width);
+			textLayouts.put(index, textLayout);
+		}
+		return textLayout;
+	}
+
+	/**
+	 * drop cached text layouts of pages which can not be drawn at current swipePosition
+	 */
+	private void trimTextLayouts() {
+		for (int i = textLayouts.size() - 1; i >= 0; i--) {
+			if (!isPageVisible(textLayouts.keyAt(i))) {
+				textLayouts.removeAt(i);
+			}
+		}
+	}
+
+	/**
+	 * @return cached source rects of page at index, rebuilt if bitmap's size or side image's size changed
+	 */
+	private PageGeometry getPageGeometry(int index, Bitmap bitmap, int width, int height) {
+		index = pageManager.resolveIndex(index);
+		PageGeometry geometry = pageGeometries.get(index);
+		if (geometry == null) {
+			geometry = new PageGeometry();
+			pageGeometries.put(index, geometry);
+		}
+		if (!geometry.matches(bitmap.getWidth(), bitmap.getHeight(), width, height, sideWidth, sideTopMargin, sideHeight)) {
+			geometry.set(bitmap.getWidth(), bitmap.getHeight(), width, height, sideWidth, sideTopMargin, sideHeight);
+		}
+		return geometry;
+	}
+
+	/**
+	 * drop cached source rects of pages which can not be drawn at current swipePosition
+	 */
+	private void trimPageGeometries() {
+		for (int i = pageGeometries.size() - 1; i >= 0; i--) {
+			if (!isPageVisible(pageGeometries.keyAt(i))) {
+				pageGeometries.removeAt(i);
+			}
+		}
+	}
+
+	@SuppressWarnings("deprecation")
+	private static StaticLayout createStaticLayout(String text, TextPaint textPaint, int width) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+			return StaticLayout.Builder.obtain(text, 0, text.length(), textPaint, width).build();
+		} else {
+			//StaticLayout.Builder needs API 23
+			return new StaticLayout(text, textPaint, width, Layout.Alignment.ALIGN_NORMAL, 1.0f, 0.0f, false);
+		}
+	}
+
+	/**
+	 * title and subtitle layouts of a page and the text, font sizes, typefaces and width they were built for
+	 */
+	private final class PageTextLayout {
+		final String title;
+		final String subtitle;
+		final int width;
+		final float titleFontSize;
+		final float subtitleFontSize;
+		final Typeface titleTypeface;
+		final Typeface subtitleTypeface;
+		final float verticalSpacing;
+		final StaticLayout titleLayout;
+		final StaticLayout subtitleLayout;
+		/**
+		 * title and subtitle recorded once as draw ops for hardware canvases, or rendered once into
+		 * a bitmap for other canvases, which swiping only composites at a new offset. built on
+		 * first draw, only one of them is used depending on the canvas.
+		 */
+		private Picture picture;
+		private Bitmap layer;
+
+		PageTextLayout(String title, String subtitle, int width) {
+			this.title = title;
+			this.subtitle = subtitle;
+			this.width = width;
+			titleFontSize = titlePaint.getTextSize();
+			subtitleFontSize = subtitlePaint.getTextSize();
+			titleTypeface = titlePaint.getTypeface();
+			subtitleTypeface = subtitlePaint.getTypeface();
+			verticalSpacing = textVerticalSpacing;
+			titleLayout = createStaticLayout(title, titlePaint, width);
+			subtitleLayout = createStaticLayout(subtitle, subtitlePaint, width);
+		}
+
+		boolean matches(String title, String subtitle, int width) {
+			return this.width == width
+					&& verticalSpacing == textVerticalSpacing
+					&& titleFontSize == titlePaint.getTextSize()
+					&& subtitleFontSize == subtitlePaint.getTextSize()
+					&& titleTypeface == titlePaint.getTypeface()
+					&& subtitleTypeface == subtitlePaint.getTypeface()
+					&& this.title.equals(title)
+					&& this.subtitle.equals(subtitle);
+		}
+
+		/**
+		 * draw title centered at x = 0 with its top at y = 0, subtitle below it
+		 */
+		void draw(Canvas canvas) {
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && canvas.isHardwareAccelerated()) {
+				//replaying a picture draws the recorded text ops again, sharp at any offset, it only
+				//saves walking the layouts
+				if (picture == null) {
+					picture = new Picture();
+					drawLayouts(picture.beginRecording(getLayerWidth(), getLayerHeight()));
+					picture.endRecording();
+				}
+				canvas.save();
+				canvas.translate(-width / 2.0f - TEXT_LAYER_PADDING, -TEXT_LAYER_PADDING);
+				canvas.drawPicture(picture);
 				canvas.restore();
+			} else {
+				//software canvas, or hardware canvas before M which can not draw pictures
+				if (layer == null) {
+					layer = Bitmap.createBitmap(getLayerWidth(), getLayerHeight(), Bitmap.Config.ARGB_8888);
+					drawLayouts(new Canvas(layer));
+				}
+				//text is positioned at fractions of a pixel, a filtering paint would blur it
+				canvas.drawBitmap(layer, -width / 2.0f - TEXT_LAYER_PADDING, -TEXT_LAYER_PADDING, textLayerPaint);
 			}
 		}
+
+		private void drawLayouts(Canvas canvas) {
+			canvas.translate(width / 2.0f + TEXT_LAYER_PADDING, TEXT_LAYER_PADDING);
+			titleLayout.draw(canvas);
+			canvas.translate(0, titleLayout.getHeight() + verticalSpacing);
+			subtitleLayout.draw(canvas);
+		}
+
+		private int getLayerWidth() {
+			return width + 2 * TEXT_LAYER_PADDING;
+		}
+
+		private int getLayerHeight() {
+			return (int) Math.ceil(titleLayout.getHeight() + verticalSpacing + subtitleLayout.getHeight()) + 2 * TEXT_LAYER_PADDING;
+		}
+	}
+
+	/**
+	 * @return first row from which shadow gradient stays fully opaque till the bottom, as it is clamped
+	 */
+	private int getShadowOpaqueTop(int height) {
+		int i = shadowGradientColors.length - 1;
+		while (i >= 0 && Color.alpha(shadowGradientColors[i]) == 0xFF) {
+			i--;
+		}
+		if (i == shadowGradientColors.length - 1) {
+			return Integer.MAX_VALUE;
+		}
+		//colors between two opaque stops are opaque, and so is everything above first stop
+		float position = i < 0 ? 0 : shadowGradientPositions[i + 1];
+		return (int) Math.ceil(position * height);
 	}
 
 	private void drawShadow(Canvas canvas) {
 		if (shadowGradient != null) {
-			paint.setShader(shadowGradient);
-			paint.setStyle(Paint.Style.FILL);
-			canvas.drawRect(rectView, paint);
+			canvas.drawRect(rectView, shadowPaint);
 		}
-		paint.setStyle(Paint.Style.STROKE);
-		paint.setShader(null);
 	}
 
 	private void drawPageImages(Canvas canvas, int width, int height) {
-		float offset;
 		int centerWidth = (int) (width - 2 * sideWidth);
-		int bitmapCenterWidth;
-		double ratio = ((double) width) / height;
-		float x = 0;//new width or height for bitmap to fit this view's size
-		//draw background images
-		//try to draw 5 images around swipePosition
+		int centerTop = (int) sideTopMargin;
+		int centerBottom = (int) (sideTopMargin + sideHeight);
+		//work out what each of the 5 pages around swipePosition draws, once per frame
+		pageFrameCount = 0;
 		for (int index = (int) swipePosition - 2; index < swipePosition + 2; index++) {
 			if (!loop && (index < 0 || index > pageManager.getPageCount() - 1)) {
 				continue;
 			}
-			offset = index - swipePosition;
-			rectDst.set(
-					(int) (offset * width),
+			PageFrame frame = pageFrames[pageFrameCount++];
+			frame.offset = index - swipePosition;
+			frame.background.set(
+					(int) (frame.offset * width),
 					0,
-					(int) ((1 + offset) * width),
+					(int) ((1 + frame.offset) * width),
 					height
 			);
-			if (Rect.intersects(rectDst, rectView)) {
+			frame.center.set(
+					(int) (sideWidth + frame.offset * centerWidth),
+					centerTop,
+					(int) (sideWidth + frame.offset * centerWidth + centerWidth),
+					centerBottom
+			);
+			frame.backgroundVisible = Rect.intersects(frame.background, rectView);
+			frame.centerVisible = Rect.intersects(frame.center, rectView);
+			frame.bitmap = null;
+			frame.centerOpaque = false;
+			if (frame.backgroundVisible || frame.centerVisible) {
 				Bitmap bitmap = pageManager.getBitmap(index);
-				if (bitmap == null || bitmap.isRecycled()) {
-					paint.setColor(Color.GRAY);
-					paint.setStyle(Paint.Style.FILL);
-					canvas.drawRect(rectDst, paint);
-					paint.setStyle(Paint.Style.STROKE);
+				if (bitmap != null && !bitmap.isRecycled()) {
+					frame.bitmap = bitmap;
+					frame.geometry = getPageGeometry(index, bitmap, width, height);
+					frame.centerSrc.set(frame.geometry.getCenterLeft(frame.offset), frame.geometry.centerTop, frame.geometry.getCenterRight(frame.offset), frame.geometry.centerBottom);
+					//parts of source outside of bitmap leave holes in destination
+					frame.centerOpaque = !bitmap.hasAlpha()
+							&& frame.centerSrc.left >= 0 && frame.centerSrc.top >= 0
+							&& frame.centerSrc.right <= bitmap.getWidth() && frame.centerSrc.bottom <= bitmap.getHeight();
 				} else {
-					if (((double) bitmap.getWidth()) / bitmap.getHeight() <= ratio) {
-						//crop top and bottom
-						x = (float) (bitmap.getWidth() / ratio);
-						rectSrc.set(
-								0,
-								(int) ((bitmap.getHeight() - x) / 2.0),
-								bitmap.getWidth(),
-								(int) ((bitmap.getHeight() + x) / 2.0)
-						);
-					} else {
-						//crop left and right
-						x = (float) (bitmap.getHeight() * ratio);
-						rectSrc.set(
-								(int) ((bitmap.getWidth() - x) / 2.0),
-								0,
-								(int) ((bitmap.getWidth() + x) / 2.0),
-								bitmap.getHeight()
-						);
-					}
-					canvas.drawBitmap(bitmap, rectSrc, rectDst, paint);
+					frame.centerOpaque = true;//placeholder
 				}
-				if (DEBUG) {
-					debugRects.add(new Rect(rectDst));
+			}
+			if (DEBUG) {
+				if (frame.backgroundVisible) {
+					debugRects.add(new Rect(frame.background));
 				}
-				paint.setColor(Color.BLACK);
-				paint.setAlpha((int) (0.75 * Math.abs(offset) * 255));
-				canvas.drawRect(rectDst, paint);
-				paint.setAlpha(255);
+				debugRects.add(new Rect(frame.center));
 			}
 		}
-		//draw center images
-		//try to draw 5 images around swipePosition
-		for (int index = (int) swipePosition - 2; index < swipePosition + 2; index++) {
-			if (!loop && (index < 0 || index > pageManager.getPageCount() - 1)) {
-				continue;
-			}
-			offset = index - swipePosition;
-			rectDst.set(
-					(int) (sideWidth + offset * centerWidth),
-					((int) sideTopMargin),
-					(int) (sideWidth + offset * centerWidth + centerWidth),
-					((int) (sideTopMargin + sideHeight))
-			);
-			if (DEBUG) {
-				debugRects.add(new Rect(rectDst));
+		//background images, all of them are below center images
+		for (int i = 0; i < pageFrameCount; i++) {
+			PageFrame frame = pageFrames[i];
+			if (frame.backgroundVisible) {
+				drawPageBackground(canvas, frame, centerTop, centerBottom);
 			}
-			if (Rect.intersects(rectDst, rectView)) {
-				Bitmap bitmap = pageManager.getBitmap(index);
-				if (bitmap == null || bitmap.isRecycled()) {
-					paint.setColor(Color.GRAY);
-					paint.setStyle(Paint.Style.FILL);
-					canvas.drawRect(rectDst, paint);
-					paint.setStyle(Paint.Style.STROKE);
+		}
+		//center images
+		for (int i = 0; i < pageFrameCount; i++) {
+			PageFrame frame = pageFrames[i];
+			if (frame.centerVisible) {
+				if (frame.bitmap == null) {
+					canvas.drawRect(frame.center, placeholderPaint);
 				} else {
-					if (((double) bitmap.getWidth()) / bitmap.getHeight() <= ratio) {
-						//crop top and bottom
-						x = (float) (bitmap.getWidth() / ratio);
-						bitmapCenterWidth = (int) ((double) bitmap.getWidth() / width * centerWidth);
-						rectSrc.set(
-								(int) (bitmap.getWidth() * (-0.5 * offset + 0.5) + bitmapCenterWidth * (0.5 * offset - 0.5)),
-								(int) ((bitmap.getHeight() - x) / 2.0 + x * sideTopMargin / height),
-								(int) (bitmap.getWidth() * (-0.5 * offset + 0.5) + bitmapCenterWidth * (0.5 * offset + 0.5)),
-								(int) ((bitmap.getHeight() - x) / 2.0 + x * (((double) sideTopMargin + sideHeight) / height))
-						);
-					} else {
-						//crop left and right
-						x = (float) (bitmap.getHeight() * ratio);
-						bitmapCenterWidth = (int) (x / width * centerWidth);
-						rectSrc.set(
-								(int) ((bitmap.getWidth() - x) / 2.0 + x * (-0.5 * offset + 0.5) + bitmapCenterWidth * (0.5 * offset - 0.5)),
-								(int) (bitmap.getHeight() * ((double) sideTopMargin) / height),
-								(int) ((bitmap.getWidth() - x) / 2.0 + x * (-0.5 * offset + 0.5) + bitmapCenterWidth * (0.5 * offset + 0.5)),
-								(int) (bitmap.getHeight() * (((double) sideTopMargin + sideHeight) / height))
-						);
-					}
-					canvas.drawBitmap(bitmap, rectSrc, rectDst, paint);
+					canvas.drawBitmap(frame.bitmap, frame.centerSrc, frame.center, bitmapPaint);
 				}
 			}
 		}
+		for (int i = 0; i < pageFrameCount; i++) {
+			pageFrames[i].bitmap = null;
+			pageFrames[i].geometry = null;
+		}
 		drawDebugFrame(canvas);
 	}
 
+	/**
+	 * draw background and dim overlay of a page, except for rows which are fully covered by
+	 * opaque center images or by opaque part of shadow
+	 */
+	private void drawPageBackground(Canvas canvas, PageFrame frame, int centerTop, int centerBottom) {
+		Rect dst = frame.background;
+		int alpha = (int) (0.75 * Math.abs(frame.offset) * 255);
+		int bottom = Math.min(dst.bottom, shadowOpaqueTop);
+		if (isCenterRowCovered(Math.max(dst.left, rectView.left), Math.min(dst.right, rectView.right))) {
+			drawPageBackground(canvas, frame, dst.top, Math.min(centerTop, bottom), alpha);
+			drawPageBackground(canvas, frame, Math.max(centerBottom, dst.top), bottom, alpha);
+		} else {
+			drawPageBackground(canvas, frame, dst.top, bottom, alpha);
+		}
+	}
+
+	/**
+	 * draw rows top until bottom of a page's background and dim overlay
+	 */
+	private void drawPageBackground(Canvas canvas, PageFrame frame, int top, int bottom, int alpha) {
+		if (top >= bottom) {
+			return;
+		}
+		Rect dst = frame.background;
+		boolean clipped = top > dst.top || bottom < dst.bottom;
+		rectStrip.set(dst.left, top, dst.right, bottom);
+		if (frame.bitmap == null) {
+			canvas.drawRect(rectStrip, placeholderPaint);
+		} else {
+			PageGeometry geometry = frame.geometry;
+			rectSrc.set(geometry.backgroundLeft, geometry.backgroundTop, geometry.backgroundRight, geometry.backgroundBottom);
+			if (clipped) {
+				//clip instead of cutting source rect, so scaling stays exactly the same
+				canvas.save();
+				canvas.clipRect(rectStrip);
+			}
+			canvas.drawBitmap(frame.bitmap, rectSrc, dst, bitmapPaint);
+			if (clipped) {
+				canvas.restore();
+			}
+		}
+		if (alpha > 0) {
+			//the only per-frame paint state, alpha depends on offset
+			dimPaint.setAlpha(alpha);
+			canvas.drawRect(rectStrip, dimPaint);
+		}
+	}
+
+	/**
+	 * @return whether center images of this frame cover columns left until right without a gap
+	 */
+	private boolean isCenterRowCovered(int left, int right) {
+		int x = left;
+		//frames are in ascending order of offset, so are their center images
+		for (int i = 0; i < pageFrameCount && x < right; i++) {
+			PageFrame frame = pageFrames[i];
+			if (frame.centerOpaque && frame.center.left <= x && frame.center.right > x) {
+				x = frame.center.right;
+			}
+		}
+		return x >= right;
+	}
+
+	/**
+	 * what a page draws in current frame
+	 */
+	private static final class PageFrame {
+		final Rect background = new Rect();
+		final Rect center = new Rect();
+		final Rect centerSrc = new Rect();
+		float offset;
+		boolean backgroundVisible;
+		boolean centerVisible;
+		/**
+		 * whether center image is drawn without transparent pixels
+		 */
+		boolean centerOpaque;
+		/**
+		 * null if placeholder is drawn
+		 */
+		Bitmap bitmap;
+		PageGeometry geometry;
+	}
+
 	@Override
 	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
 		super.onMeasure(widthMeasureSpec, heightMeasureSpec);
@@ -826,9 +1145,13 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 	@Override
 	protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
 		super.onLayout(changed, left, top, right, bottom);
-		if (firstLayout || refreshBitmapsOnLayout) {
-			refreshBitmaps(getWidth(), getHeight());
+		if (firstLayout) {
+			//bitmaps decoded for this size before, e.g. by a recreated slider, are kept
+			pageManager.refreshBitmapsIfSizeChanged(getWidth(), getHeight());
 			firstLayout = false;
+		} else if (refreshBitmapsOnLayout) {
+			//layout may happen on every frame of an animated resize, only decode for the last size
+			pageManager.requestRefreshBitmaps(getWidth(), getHeight());
 		}
 	}
 
@@ -839,65 +1162,118 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 		Log.i(DEBUG_TAG, String.format("onSizeChanged w=%d h=%d oldw=%d oldh=%d rect=%s", w, h, oldw, oldh, rectView.toString()));
 		if (shadowGradientColors != null && shadowGradientPositions != null) {
 			shadowGradient = new LinearGradient(0, 0, 0, rectView.height(), shadowGradientColors, shadowGradientPositions, android.graphics.Shader.TileMode.CLAMP);
+			shadowPaint.setShader(shadowGradient);
+			shadowOpaqueTop = getShadowOpaqueTop(rectView.height());
 		}
 		refreshSideImageSize();
+		textLayouts.clear();
+		pageGeometries.clear();
 	}
 
+	/**
+	 * decode bitmaps of current pages again, also if size did not change, see
+	 * {@link PageManager#refreshBitmaps(int, int)}
+	 */
 	public void refreshBitmaps(int width, int height) {
 		pageManager.refreshBitmaps(width, height);
 	}
 
-	private void handleSettlingState() {
-		if (settlingDisplacement == 0) {
+	/**
+	 * start settling from current swipePosition, its first frame already moves
+	 *
+	 * @param fling        whether to start with velocity of user's fling, or from rest
+	 * @param displacement distance to go in px, swipePosition decreases by displacement / width
+	 * @param velocity     start velocity of fling in px per ms
+	 */
+	private void startSettling(boolean fling, float displacement, float velocity) {
+		Choreographer choreographer = Choreographer.getInstance();
+		choreographer.removeFrameCallback(settlingFrameCallback);
+		settlingStartSwipePosition = swipePosition;
+		if (fling) {
+			settlingEngine.fling(displacement, velocity, System.nanoTime());
+		} else {
+			settlingEngine.snap(displacement, System.nanoTime());
+		}
+		if (settlingEngine.isRunning()) {
+			scrollState = ViewPager.SCROLL_STATE_SETTLING;
+			choreographer.postFrameCallback(settlingFrameCallback);
+			//landing page is known now, decode it before the animation gets there
+			pageManager.setLandingIndex(Math.round(swipePosition - displacement / getWidth()));
+		} else {
 			scrollState = ViewPager.SCROLL_STATE_IDLE;
-			settlingStarted = false;
+			pageManager.clearLandingIndex();
+		}
+	}
+
+	/**
+	 * let PageManager decode in low quality while pages pass by fast, and in full quality again
+	 * when slider slows down or stops
+	 */
+	private void updateDecodeQuality(long timeNanos) {
+		if (scrollState == ViewPager.SCROLL_STATE_IDLE) {
+			speedSampleTimeNanos = 0;
+			pageManager.setLowQuality(false);
 			return;
 		}
-		if (isFling) {
-			//triggered by user's fling
-			if (!settlingStarted) {
-				settlingStarted = true;
-				settlingStartTimestamp = SystemClock.uptimeMillis();
-				settlingEndTimestamp = (long) (settlingStartTimestamp - settlingStartVelocity / settlingAcceleration);
-			} else {
-				float timeOffset = SystemClock.uptimeMillis() - settlingStartTimestamp;
-				float displacementOffset = settlingStartVelocity * timeOffset + 0.5f * settlingAcceleration * timeOffset * timeOffset;
-				if (settlingStartTimestamp + timeOffset >= settlingEndTimestamp) {
-					displacementOffset = settlingDisplacement;
-					scrollState = ViewPager.SCROLL_STATE_IDLE;
-					settlingStarted = false;
-				}
-				swipePosition = settlingStartSwipePosition - displacementOffset / getWidth();
-				fixSwipePosition();
-				triggerSwipeListener();
+		if (speedSampleTimeNanos != 0) {
+			long interval = timeNanos - speedSampleTimeNanos;
+			if (interval < SPEED_SAMPLE_NANOS) {
+				return;
 			}
-		} else {
-			//triggered by touch-up event
-			if (!settlingStarted) {
-				settlingStarted = true;
-				settlingStartTimestamp = SystemClock.uptimeMillis();
-				settlingEndTimestamp = settlingStartTimestamp + SETTLING_DURATION;
-				settlingAcceleration = -2 * settlingDisplacement / (SETTLING_DURATION * SETTLING_DURATION);
-				settlingStartVelocity = -settlingAcceleration * SETTLING_DURATION;
-			} else {
-				float timeOffset = SystemClock.uptimeMillis() - settlingStartTimestamp;
-				float displacementOffset = settlingStartVelocity * timeOffset + 0.5f * settlingAcceleration * timeOffset * timeOffset;
-				if (settlingStartTimestamp + timeOffset >= settlingEndTimestamp) {
-					displacementOffset = settlingDisplacement;
-					scrollState = ViewPager.SCROLL_STATE_IDLE;
-					settlingStarted = false;
-				}
-				swipePosition = settlingStartSwipePosition - displacementOffset / getWidth();
-				fixSwipePosition();
-				triggerSwipeListener();
+			float distance = Math.abs(swipePosition - speedSampleSwipePosition);
+			if (loop) {
+				//swipePosition wraps around between samples
+				distance = Math.min(distance, pageManager.getPageCount() - distance);
 			}
+			float speed = distance * 1e9f / interval;
+			if (speed > LOW_QUALITY_SPEED) {
+				pageManager.setLowQuality(true);
+			} else if (speed < LOW_QUALITY_SPEED / 2) {
+				pageManager.setLowQuality(false);
+			}
+		}
+		speedSampleSwipePosition = swipePosition;
+		speedSampleTimeNanos = timeNanos;
+	}
+
+	private void stopSettling() {
+		settlingEngine.cancel();
+		Choreographer.getInstance().removeFrameCallback(settlingFrameCallback);
+		pageManager.clearLandingIndex();
+	}
+
+	private void handleSettlingState(long frameTimeNanos) {
+		if (scrollState != ViewPager.SCROLL_STATE_SETTLING) {
+			return;
+		}
+		DrawMetrics metrics = drawMetrics;
+		long start = metrics == null ? 0 : System.nanoTime();
+		boolean running = settlingEngine.onFrame(frameTimeNanos);
+		if (!running) {
+			scrollState = ViewPager.SCROLL_STATE_IDLE;
+		}
+		swipePosition = settlingStartSwipePosition - settlingEngine.getDisplacement() / getWidth();
+		fixSwipePosition();
+		triggerSwipeListener();
+		if (running) {
+			Choreographer.getInstance().postFrameCallback(settlingFrameCallback);
+		} else {
+			pageManager.clearLandingIndex();
 		}
+		updateDecodeQuality(frameTimeNanos);
 		invalidate();
+		if (metrics != null) {
+			metrics.lap(DrawMetrics.PHASE_SETTLING, start);
+		}
 	}
 
 	private int lastIndex = 0;
 
 	private void triggerSwipeListener() {
+		if (pageManager.setResidencyCenter((int) swipePosition)) {
+			trimTextLayouts();
+			trimPageGeometries();
+		}
 		if (scrollState == ViewPager.SCROLL_STATE_IDLE) {
 			int index = (int) swipePosition;
 			if (lastIndex != index) {
@@ -916,18 +1292,124 @@ public class MXSlider extends View implements PageManager.OnStateChangeListener
 		if (!DEBUG) {
 			return;
 		}
-		paint.setStyle(Paint.Style.STROKE);
+		debugPaint.setColor(Color.BLACK);
 		for (Rect rect : debugRects) {
-			canvas.drawRect(rect, paint);
+			canvas.drawRect(rect, debugPaint);
 		}
 		debugRects.clear();
 	}
 
 	@Override
 	public void onPageAdd() {
+		textLayouts.clear();
 		invalidate();
 	}
 
+	@Override
+	public void onPageListChanged(int type, int index, int toIndex) {
+		if (movedTextLayoutKeys == null) {
+			movedTextLayoutKeys = getKeys(textLayouts);
+			movedPageGeometryKeys = getKeys(pageGeometries);
+		}
+		moveKeys(movedTextLayoutKeys, type, index, toIndex);
+		moveKeys(movedPageGeometryKeys, type, index, toIndex);
+		if (type != PageListDiff.REPLACE) {
+			//keep showing the same page, or the one after it if it is removed
+			int current = (int) swipePosition;
+			int mapped = PageListDiff.mapIndex(type, index, toIndex, current);
+			float shift = mapped < 0 ? 0 : mapped - current;
+			swipePosition += shift;
+			settlingStartSwipePosition += shift;
+			lastSwipePosition += shift * getWidth();
+		}
+	}
+
+	@Override
+	public void onPageListChangesApplied() {
+		if (movedTextLayoutKeys != null) {
+			remapKeys(textLayouts, movedTextLayoutKeys);
+			remapKeys(pageGeometries, movedPageGeometryKeys);
+			movedTextLayoutKeys = null;
+			movedPageGeometryKeys = null;
+		}
+		//page count is only right for the position once all changes are followed
+		fixSwipePosition();
+		triggerSwipeListener();
+		invalidate();
+	}
+
+	private static int[] getKeys(SparseArray<?> array) {
+		int[] keys = new int[array.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = array.keyAt(i);
+		}
+		return keys;
+	}
+
+	/**
+	 * follow page indices through a change, a removed or replaced page gets -1
+	 */
+	private static void moveKeys(int[] keys, int type, int index, int toIndex) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] < 0) {
+				continue;
+			}
+			if (type == PageListDiff.REPLACE) {
+				if (keys[i] == index) {
+					keys[i] = -1;
+				}
+			} else {
+				keys[i] = PageListDiff.mapIndex(type, index, toIndex, keys[i]);
+			}
+		}
+	}
+
+	/**
+	 * move values of array to the indices of their pages after a batch of changes, dropping those
+	 * of removed and replaced pages
+	 *
+	 * @param keys new index for every value in array, see {@link #moveKeys(int[], int, int, int)}
+	 */
+	private static <T> void remapKeys(SparseArray<T> array, int[] keys) {
+		SparseArray<T> old = array.clone();
+		array.clear();
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] >= 0) {
+				array.put(keys[i], old.valueAt(i));
+			}
+		}
+	}
+
+	@Override
+	public void onPagesLoaded(int start, int count) {
+		for (int i = (int) swipePosition - 2; i < swipePosition + 2; i++) {
+			int index = pageManager.resolveIndex(i);
+			if (index >= start && index < start + count) {
+				invalidate();
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void onBitmapLoaded(int index) {
+		if (isPageVisible(index)) {
+			invalidate();
+		}
+	}
+
+	/**
+	 * whether page at index is in the range drawn by drawPageImages()
+	 */
+	private boolean isPageVisible(int index) {
+		for (int i = (int) swipePosition - 2; i < swipePosition + 2; i++) {
+			if (pageManager.resolveIndex(i) == index) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	public interface OnSwipeListener {
 		void onSwipePositionChange(float position);
 
@@ -0,0 +1,30 @@
+package tech.mingxi.library.slider;
+
+import java.util.List;
+
+/**
+ * provides pages to a {@link PageManager} on demand, so a large playlist does not have to be
+ * held in memory, see {@link PageManager#setDataSource(PageDataSource)}. pages are loaded in
+ * chunks around the current page and only a bounded number of chunks is kept.
+ * <p>
+ * a data source backed by a cursor or a paginated database only needs to read the requested range.
+ */
+public interface PageDataSource {
+	/**
+	 * called on main thread, when data source is set and on {@link PageManager#notifyDataSetChanged()}
+	 *
+	 * @return exact number of pages
+	 */
+	int getPageCount();
+
+	/**
+	 * called on a background thread. a RuntimeException thrown here is logged and treated like
+	 * returning no pages
+	 *
+	 * @param start index of first page
+	 * @param count number of pages, never beyond {@link #getPageCount()}
+	 * @return pages from start in order. if fewer are returned, the rest is requested again after
+	 * a delay, which grows with every further failure until {@link PageManager#notifyDataSetChanged()}
+	 */
+	List<? extends Page> loadPages(int start, int count);
+}
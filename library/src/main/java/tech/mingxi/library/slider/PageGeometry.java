@@ -0,0 +1,96 @@
+package tech.mingxi.library.slider;
+
+/**
+ * source rects of a page's background image and center image.
+ * <p>
+ * they only depend on bitmap size, view size and side image size, except that horizontal
+ * bounds of center image move linearly with offset. everything else is computed once in
+ * {@link #set} and a frame only evaluates {@link #getCenterLeft(float)} and
+ * {@link #getCenterRight(float)}. results are the same as computing the rects from scratch,
+ * so arithmetic below keeps the exact types and evaluation order of the original formulas.
+ */
+final class PageGeometry {
+	private int bitmapWidth;
+	private int bitmapHeight;
+	private int width;
+	private int height;
+	private float sideWidth;
+	private float sideTopMargin;
+	private float sideHeight;
+
+	int backgroundLeft;
+	int backgroundTop;
+	int backgroundRight;
+	int backgroundBottom;
+	int centerTop;
+	int centerBottom;
+	/**
+	 * center image's left = centerBase + centerSpan * (-0.5 * offset + 0.5) + bitmapCenterWidth * (0.5 * offset - 0.5)
+	 */
+	private double centerBase;
+	private double centerSpan;
+	private int bitmapCenterWidth;
+
+	/**
+	 * @return whether geometry was computed for these sizes
+	 */
+	boolean matches(int bitmapWidth, int bitmapHeight, int width, int height, float sideWidth, float sideTopMargin, float sideHeight) {
+		return this.bitmapWidth == bitmapWidth
+				&& this.bitmapHeight == bitmapHeight
+				&& this.width == width
+				&& this.height == height
+				&& this.sideWidth == sideWidth
+				&& this.sideTopMargin == sideTopMargin
+				&& this.sideHeight == sideHeight;
+	}
+
+	/**
+	 * @param width  view's width
+	 * @param height view's height
+	 */
+	void set(int bitmapWidth, int bitmapHeight, int width, int height, float sideWidth, float sideTopMargin, float sideHeight) {
+		this.bitmapWidth = bitmapWidth;
+		this.bitmapHeight = bitmapHeight;
+		this.width = width;
+		this.height = height;
+		this.sideWidth = sideWidth;
+		this.sideTopMargin = sideTopMargin;
+		this.sideHeight = sideHeight;
+		int centerWidth = (int) (width - 2 * sideWidth);
+		double ratio = ((double) width) / height;
+		float x;//new width or height for bitmap to fit this view's size
+		if (((double) bitmapWidth) / bitmapHeight <= ratio) {
+			//crop top and bottom
+			x = (float) (bitmapWidth / ratio);
+			backgroundLeft = 0;
+			backgroundTop = (int) ((bitmapHeight - x) / 2.0);
+			backgroundRight = bitmapWidth;
+			backgroundBottom = (int) ((bitmapHeight + x) / 2.0);
+			bitmapCenterWidth = (int) ((double) bitmapWidth / width * centerWidth);
+			centerBase = 0;
+			centerSpan = bitmapWidth;
+			centerTop = (int) ((bitmapHeight - x) / 2.0 + x * sideTopMargin / height);
+			centerBottom = (int) ((bitmapHeight - x) / 2.0 + x * (((double) sideTopMargin + sideHeight) / height));
+		} else {
+			//crop left and right
+			x = (float) (bitmapHeight * ratio);
+			backgroundLeft = (int) ((bitmapWidth - x) / 2.0);
+			backgroundTop = 0;
+			backgroundRight = (int) ((bitmapWidth + x) / 2.0);
+			backgroundBottom = bitmapHeight;
+			bitmapCenterWidth = (int) (x / width * centerWidth);
+			centerBase = (bitmapWidth - x) / 2.0;
+			centerSpan = x;
+			centerTop = (int) (bitmapHeight * ((double) sideTopMargin) / height);
+			centerBottom = (int) (bitmapHeight * (((double) sideTopMargin + sideHeight) / height));
+		}
+	}
+
+	int getCenterLeft(float offset) {
+		return (int) (centerBase + centerSpan * (-0.5 * offset + 0.5) + bitmapCenterWidth * (0.5 * offset - 0.5));
+	}
+
+	int getCenterRight(float offset) {
+		return (int) (centerBase + centerSpan * (-0.5 * offset + 0.5) + bitmapCenterWidth * (0.5 * offset + 0.5));
+	}
+}
@@ -0,0 +1,258 @@
+package tech.mingxi.library.slider;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * changes which turn one page list into another, applied one after another in order, and how
+ * each of them moves an index.
+ * <p>
+ * items are matched by equals(). matched items in the longest run which keeps its order stay
+ * where they are and other matched items are moved. unmatched items are removed or inserted,
+ * or replaced in place if an old and a new one sit between the same staying items. so only
+ * changed items need work, computing the changes takes O(n log n).
+ */
+class PageListDiff {
+	static final int INSERT = 0;
+	static final int REMOVE = 1;
+	/**
+	 * item at index moves to toIndex, which is its index after the move
+	 */
+	static final int MOVE = 2;
+	static final int REPLACE = 3;
+
+	static final class Change<T> {
+		final int type;
+		final int index;
+		final int toIndex;
+		/**
+		 * new item of INSERT and REPLACE, null otherwise
+		 */
+		final T item;
+
+		Change(int type, int index, int toIndex, T item) {
+			this.type = type;
+			this.index = index;
+			this.toIndex = toIndex;
+			this.item = item;
+		}
+
+		@Override
+		public String toString() {
+			switch (type) {
+				case INSERT:
+					return "insert " + index;
+				case REMOVE:
+					return "remove " + index;
+				case MOVE:
+					return "move " + index + " to " + toIndex;
+				default:
+					return "replace " + index;
+			}
+		}
+	}
+
+	/**
+	 * @return index of the item at i after a change, or -1 if it is removed by the change.
+	 * for a REPLACE the index stays, although the item changes
+	 */
+	static int mapIndex(int type, int index, int toIndex, int i) {
+		switch (type) {
+			case INSERT:
+				return i >= index ? i + 1 : i;
+			case REMOVE:
+				if (i == index) {
+					return -1;
+				}
+				return i > index ? i - 1 : i;
+			case MOVE:
+				if (i == index) {
+					return toIndex;
+				}
+				if (index < toIndex && i > index && i <= toIndex) {
+					return i - 1;
+				}
+				if (index > toIndex && i >= toIndex && i < index) {
+					return i + 1;
+				}
+				return i;
+			default:
+				return i;
+		}
+	}
+
+	static <T> List<Change<T>> compute(List<? extends T> oldList, List<? extends T> newList) {
+		int oldSize = oldList.size();
+		int newSize = newList.size();
+		//match new items to old ones, equal items in order of appearance
+		HashMap<T, ArrayDeque<Integer>> oldPositions = new HashMap<>();
+		for (int i = 0; i < oldSize; i++) {
+			T item = oldList.get(i);
+			ArrayDeque<Integer> positions = oldPositions.get(item);
+			if (positions == null) {
+				positions = new ArrayDeque<>();
+				oldPositions.put(item, positions);
+			}
+			positions.add(i);
+		}
+		int[] oldIndexOfNew = new int[newSize];
+		boolean[] oldMatched = new boolean[oldSize];
+		for (int i = 0; i < newSize; i++) {
+			ArrayDeque<Integer> positions = oldPositions.get(newList.get(i));
+			oldIndexOfNew[i] = positions == null || positions.isEmpty() ? -1 : positions.poll();
+			if (oldIndexOfNew[i] >= 0) {
+				oldMatched[oldIndexOfNew[i]] = true;
+			}
+		}
+		boolean[] stays = getLongestIncreasingRun(oldIndexOfNew);
+		boolean[] oldStays = new boolean[oldSize];
+		for (int i = 0; i < newSize; i++) {
+			if (stays[i]) {
+				oldStays[oldIndexOfNew[i]] = true;
+			}
+		}
+		//pair unmatched old and new items between the same staying items as replacements
+		int[] replacedOldOfNew = new int[newSize];
+		boolean[] oldReplaced = new boolean[oldSize];
+		int oldCursor = 0;
+		for (int i = 0; i < newSize; i++) {
+			replacedOldOfNew[i] = -1;
+			if (stays[i]) {
+				oldCursor = oldIndexOfNew[i] + 1;
+			} else if (oldIndexOfNew[i] < 0) {
+				while (oldCursor < oldSize && !oldStays[oldCursor] && oldMatched[oldCursor]) {
+					oldCursor++;
+				}
+				if (oldCursor < oldSize && !oldStays[oldCursor]) {
+					replacedOldOfNew[i] = oldCursor;
+					oldReplaced[oldCursor] = true;
+					oldCursor++;
+				}
+			}
+		}
+
+		//slots of items in order of current list: an old item keeps the slot of its old position
+		//and a moved or inserted item takes a slot right after the item before it in new list.
+		//nothing else is ever placed between the two, so slots can be laid out in advance, and
+		//position of an item is the number of occupied slots before its slot
+		int[] chainLengths = new int[oldSize + 1];
+		int anchor = 0;
+		for (int i = 0; i < newSize; i++) {
+			if (stays[i]) {
+				anchor = oldIndexOfNew[i] + 1;
+			} else if (replacedOldOfNew[i] >= 0) {
+				anchor = replacedOldOfNew[i] + 1;
+			} else {
+				chainLengths[anchor]++;
+			}
+		}
+		//first slot after old item p - 1, chain before all old items for p = 0
+		int[] chainStarts = new int[oldSize + 1];
+		int[] oldSlots = new int[oldSize];
+		int slotCount = chainLengths[0];
+		for (int p = 0; p < oldSize; p++) {
+			oldSlots[p] = slotCount;
+			chainStarts[p + 1] = slotCount + 1;
+			slotCount += 1 + chainLengths[p + 1];
+		}
+		int[] occupied = new int[slotCount + 1];
+		for (int p = 0; p < oldSize; p++) {
+			addOccupied(occupied, oldSlots[p], 1);
+		}
+
+		List<Change<T>> changes = new ArrayList<>();
+		for (int i = oldSize - 1; i >= 0; i--) {
+			if (!oldMatched[i] && !oldReplaced[i]) {
+				addOccupied(occupied, oldSlots[i], -1);
+				changes.add(new Change<T>(REMOVE, i, i, null));
+			}
+		}
+		//place every item which does not stay right after the item before it in new list
+		int[] newSlots = new int[newSize];
+		int nextSlot = chainStarts[0];
+		for (int i = 0; i < newSize; i++) {
+			T item = newList.get(i);
+			if (stays[i]) {
+				newSlots[i] = oldSlots[oldIndexOfNew[i]];
+				nextSlot = chainStarts[oldIndexOfNew[i] + 1];
+				continue;
+			}
+			if (replacedOldOfNew[i] >= 0) {
+				newSlots[i] = oldSlots[replacedOldOfNew[i]];
+				nextSlot = chainStarts[replacedOldOfNew[i] + 1];
+				changes.add(new Change<>(REPLACE, countOccupiedBefore(occupied, newSlots[i]), 0, item));
+				continue;
+			}
+			int target = i == 0 ? 0 : countOccupiedBefore(occupied, newSlots[i - 1]) + 1;
+			newSlots[i] = nextSlot++;
+			if (oldIndexOfNew[i] < 0) {
+				changes.add(new Change<>(INSERT, target, target, item));
+			} else {
+				int oldSlot = oldSlots[oldIndexOfNew[i]];
+				int from = countOccupiedBefore(occupied, oldSlot);
+				int to = from < target ? target - 1 : target;
+				addOccupied(occupied, oldSlot, -1);
+				if (from != to) {
+					changes.add(new Change<T>(MOVE, from, to, null));
+				}
+			}
+			addOccupied(occupied, newSlots[i], 1);
+		}
+		return changes;
+	}
+
+	/**
+	 * add delta to slot of a Fenwick tree counting occupied slots, indexed from 1
+	 */
+	private static void addOccupied(int[] occupied, int slot, int delta) {
+		for (int i = slot + 1; i < occupied.length; i += i & -i) {
+			occupied[i] += delta;
+		}
+	}
+
+	private static int countOccupiedBefore(int[] occupied, int slot) {
+		int count = 0;
+		for (int i = slot; i > 0; i -= i & -i) {
+			count += occupied[i];
+		}
+		return count;
+	}
+
+	/**
+	 * @return which of the non-negative values form a longest strictly increasing subsequence
+	 */
+	static boolean[] getLongestIncreasingRun(int[] values) {
+		int n = values.length;
+		//tails[k] is position of smallest tail of an increasing run of length k + 1
+		int[] tails = new int[n];
+		int[] previous = new int[n];
+		int length = 0;
+		for (int i = 0; i < n; i++) {
+			if (values[i] < 0) {
+				continue;
+			}
+			int low = 0;
+			int high = length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (values[tails[middle]] < values[i]) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			previous[i] = low > 0 ? tails[low - 1] : -1;
+			tails[low] = i;
+			if (low == length) {
+				length++;
+			}
+		}
+		boolean[] result = new boolean[n];
+		for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+			result[i] = true;
+		}
+		return result;
+	}
+}
@@ -2,126 +2,1360 @@ package tech.mingxi.library.slider;
 
 import android.content.ContentResolver;
 import android.content.Context;
+import android.content.pm.PackageManager;
+import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
 import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.os.Process;
+import android.provider.DocumentsContract;
+import android.provider.MediaStore;
 import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
 
+import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PageManager {
 	private static final boolean CROP_IMAGES = false;
+	/**
+	 * number of background threads decoding bitmaps, shared by all PageManagers
+	 */
+	private static final int DECODE_THREAD_COUNT = 2;
+	/**
+	 * number of pages drawn by MXSlider on each side of current page, pages kept decoded can not be fewer
+	 */
+	public static final int MIN_RESIDENCY_RADIUS = 2;
+	/**
+	 * default number of pages kept decoded on each side of current page, matches the 5 pages drawn by MXSlider
+	 */
+	public static final int DEFAULT_RESIDENCY_RADIUS = MIN_RESIDENCY_RADIUS;
+	private static final int NO_INDEX = Integer.MIN_VALUE;
+	/**
+	 * low quality bitmaps are decoded for target size divided by this, so they have about
+	 * 1 / 16 of the pixels
+	 */
+	public static final int LOW_QUALITY_DIVISOR = 4;
+	private static final ThreadPoolExecutor DECODE_EXECUTOR = createExecutor(DECODE_THREAD_COUNT, "MXSlider-decode-");
+	/**
+	 * loads chunks of pages from {@link PageDataSource}s, shared by all PageManagers
+	 */
+	private static final ThreadPoolExecutor PAGE_LOAD_EXECUTOR = createExecutor(1, "MXSlider-pages-");
+	private static final String DISK_CACHE_DIRECTORY = "mxslider-thumbnails";
+	/**
+	 * default max size of thumbnails on disk in bytes. thumbnails are stored as JPEG or WebP at
+	 * their target size, so a full-screen cover takes some hundred KB instead of megabytes of pixels
+	 */
+	public static final long DEFAULT_DISK_CACHE_SIZE = 32 * 1024 * 1024;
+	/**
+	 * process-wide thumbnail cache, opened on first use
+	 */
+	private static ThumbnailDiskCache diskCache;
+	private static boolean diskCacheOpenFailed = false;
+	private static final int STREAM_BUFFER_SIZE = 16 * 1024;
+	/**
+	 * max size of image header which can be read before rewinding the stream to decode pixels.
+	 * bounds of common formats are found within a few KB, JPEGs with large EXIF data may need more.
+	 */
+	private static final int MARK_LIMIT = 1024 * 1024;
+	/**
+	 * delay of {@link #requestRefreshBitmaps(int, int)}, so only the last size of an animated
+	 * resize is decoded
+	 */
+	public static final long REFRESH_DELAY = 100;
 	private final OnStateChangeListener onStateChangeListener;
 	private final Context context;
-	private List<Page> pages;
-	private ArrayList<Bitmap> bitmaps;
-	private boolean loop = false;
+	/**
+	 * decoded bitmaps are published to this handler, so {@link #bitmaps} is only touched on main thread
+	 */
+	private final Handler mainHandler;
+	/**
+	 * unmodifiable list of pages, which is replaced instead of changed on main thread, so it can
+	 * be read on any thread without locking
+	 */
+	private volatile List<Page> pages;
+	/**
+	 * serializes threads changing pages
+	 */
+	private final Object writeLock = new Object();
+	/**
+	 * pages as they are after all {@link #pendingWrites}, null while pages come from a data source.
+	 * guarded by writeLock
+	 */
+	private List<Page> queuedPages;
+	/**
+	 * changes of pages waiting to be applied on main thread, one list per write in the order they
+	 * were made
+	 */
+	private final ConcurrentLinkedQueue<List<PageListDiff.Change<Page>>> pendingWrites = new ConcurrentLinkedQueue<>();
+	/**
+	 * whether {@link #applyWritesRunnable} is posted, so a worker writing in a loop posts it once
+	 */
+	private final AtomicBoolean applyWritesPosted = new AtomicBoolean();
+	private final Runnable applyWritesRunnable = new Runnable() {
+		@Override
+		public void run() {
+			applyWritesPosted.set(false);
+			applyWrites();
+		}
+	};
+	/**
+	 * pages of data source, null if pages are added to {@link #pages}
+	 */
+	private volatile PageWindow pageWindow;
+	/**
+	 * decoded bitmaps of resident pages by index
+	 */
+	private final SparseArray<DecodedBitmap> bitmaps = new SparseArray<>();
+	private volatile boolean loop = false;
+	/**
+	 * increased on every refresh, results of decode tasks from older refreshes are dropped
+	 */
+	private volatile int refreshGeneration = 0;
+	/**
+	 * size passed to last refreshBitmaps(), 0 if bitmaps have never been refreshed
+	 */
+	private int targetWidth = 0;
+	private int targetHeight = 0;
+	/**
+	 * only pages within this distance of {@link #residencyCenter} keep their bitmaps in memory
+	 */
+	private int residencyRadius = DEFAULT_RESIDENCY_RADIUS;
+	private int residencyCenter = 0;
+	/**
+	 * page the slider is moving to, or {@link #NO_INDEX}. pages around it are resident as well
+	 */
+	private int landingIndex = NO_INDEX;
+	/**
+	 * cancellation signals of decode tasks which are queued or running for current generation
+	 */
+	private final SparseArray<CancellationSignal> decodingPages = new SparseArray<>();
+	/**
+	 * pages in {@link #decodingPages} which are decoded in low quality
+	 */
+	private final SparseBooleanArray lowQualityDecodes = new SparseBooleanArray();
+	/**
+	 * orders pending decodes on {@link #DECODE_EXECUTOR} by distance from residency center and landing index
+	 */
+	private final DecodeScheduler decodeScheduler = new DecodeScheduler(DECODE_EXECUTOR);
+	/**
+	 * whether pages are decoded in low quality, see {@link #setLowQuality(boolean)}
+	 */
+	private boolean lowQuality = false;
+	private int pendingRefreshWidth;
+	private int pendingRefreshHeight;
+	/**
+	 * whether {@link #pendingRefresh} is posted. nothing is decoded meanwhile, as it would be
+	 * decoded for the outdated size
+	 */
+	private boolean refreshPending = false;
+	private final Runnable pendingRefresh = new Runnable() {
+		@Override
+		public void run() {
+			refreshBitmapsIfSizeChanged(pendingRefreshWidth, pendingRefreshHeight);
+		}
+	};
+	/**
+	 * whether scaled bitmaps are stored in and read from {@link ThumbnailDiskCache}
+	 */
+	private volatile boolean diskCacheEnabled = true;
 
 	public PageManager(Context context, OnStateChangeListener onStateChangeListener) {
 		this.context = context;
 		this.onStateChangeListener = onStateChangeListener;
-		pages = new ArrayList<>();
-		bitmaps = new ArrayList<>();
+		mainHandler = new Handler(Looper.getMainLooper());
+		pages = Collections.emptyList();
+		queuedPages = new ArrayList<>();
+	}
+
+	private static ThreadPoolExecutor createExecutor(int threadCount, final String name) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount,
+				30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable r) {
+				return new Thread(new Runnable() {
+					@Override
+					public void run() {
+						Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+						r.run();
+					}
+				}, name + count.incrementAndGet());
+			}
+		});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
 	}
 
+	/**
+	 * append page. like all methods changing pages it can be called on any thread, the change is
+	 * applied right away on main thread and posted to main thread in call order otherwise.
+	 *
+	 * @throws IllegalStateException if pages come from a {@link PageDataSource}
+	 */
 	public void addPage(Page page) {
-		pages.add(page);
+		addAllPages(Collections.singletonList(page));
+	}
+
+	/**
+	 * @throws IllegalStateException if pages come from a {@link PageDataSource}
+	 */
+	public void addAllPages(Collection<? extends Page> page) {
+		List<Page> added = new ArrayList<Page>(page);
+		synchronized (writeLock) {
+			List<Page> queued = getQueuedPages();
+			List<PageListDiff.Change<Page>> changes = new ArrayList<>(added.size());
+			for (int i = 0; i < added.size(); i++) {
+				changes.add(new PageListDiff.Change<>(PageListDiff.INSERT, queued.size() + i, queued.size() + i, added.get(i)));
+			}
+			queued.addAll(added);
+			pendingWrites.add(changes);
+		}
+		applyWrites();
+	}
+
+	/**
+	 * insert page at index, pages from index on move one index up. decoded bitmaps, text layouts
+	 * and current page of other pages are kept.
+	 *
+	 * @param index in [0, page count]
+	 * @throws IllegalStateException if pages come from a {@link PageDataSource}
+	 */
+	public void insertPage(int index, Page page) {
+		synchronized (writeLock) {
+			List<Page> queued = getQueuedPages();
+			checkIndex(index, queued.size() + 1);
+			queued.add(index, page);
+			queueChange(PageListDiff.INSERT, index, index, page);
+		}
+		applyWrites();
+	}
+
+	/**
+	 * remove page at index, pages after it move one index down. if it is the current page, the
+	 * page after it becomes current.
+	 *
+	 * @throws IllegalStateException if pages come from a {@link PageDataSource}
+	 */
+	public void removePage(int index) {
+		synchronized (writeLock) {
+			List<Page> queued = getQueuedPages();
+			checkIndex(index, queued.size());
+			queued.remove(index);
+			queueChange(PageListDiff.REMOVE, index, index, null);
+		}
+		applyWrites();
+	}
+
+	/**
+	 * move page at fromIndex to toIndex, pages in between move by one index
+	 *
+	 * @param toIndex index of the page after it is moved
+	 * @throws IllegalStateException if pages come from a {@link PageDataSource}
+	 */
+	public void movePage(int fromIndex, int toIndex) {
+		synchronized (writeLock) {
+			List<Page> queued = getQueuedPages();
+			checkIndex(fromIndex, queued.size());
+			checkIndex(toIndex, queued.size());
+			if (fromIndex == toIndex) {
+				return;
+			}
+			queued.add(toIndex, queued.remove(fromIndex));
+			queueChange(PageListDiff.MOVE, fromIndex, toIndex, null);
+		}
+		applyWrites();
+	}
+
+	/**
+	 * replace page at index, its bitmap is kept if the new page has the same uri
+	 *
+	 * @throws IllegalStateException if pages come from a {@link PageDataSource}
+	 */
+	public void replacePage(int index, Page page) {
+		synchronized (writeLock) {
+			List<Page> queued = getQueuedPages();
+			checkIndex(index, queued.size());
+			queued.set(index, page);
+			queueChange(PageListDiff.REPLACE, index, index, page);
+		}
+		applyWrites();
+	}
+
+	/**
+	 * change pages to newPages with as few inserts, removes, moves and replacements as possible,
+	 * matching pages by equals(), so only changed pages lose their bitmaps and text layouts and
+	 * current page stays where it is in the list. the changes are computed on the calling thread.
+	 *
+	 * @throws IllegalStateException if pages come from a {@link PageDataSource}
+	 */
+	public void setPages(List<? extends Page> newPages) {
+		synchronized (writeLock) {
+			List<Page> queued = getQueuedPages();
+			List<PageListDiff.Change<Page>> changes = PageListDiff.compute(queued, newPages);
+			if (changes.isEmpty()) {
+				return;
+			}
+			queued.clear();
+			queued.addAll(newPages);
+			pendingWrites.add(changes);
+		}
+		applyWrites();
+	}
+
+	/**
+	 * @return pages as they are after all queued writes, must hold writeLock
+	 * @throws IllegalStateException if pages come from a {@link PageDataSource}
+	 */
+	private List<Page> getQueuedPages() {
+		if (queuedPages == null) {
+			throw new IllegalStateException("pages come from a PageDataSource");
+		}
+		return queuedPages;
+	}
+
+	/**
+	 * must hold writeLock
+	 */
+	private void queueChange(int type, int index, int toIndex, Page page) {
+		pendingWrites.add(Collections.singletonList(new PageListDiff.Change<>(type, index, toIndex, page)));
+	}
+
+	/**
+	 * apply queued writes now on main thread, or post them to main thread from other threads.
+	 * all writes queued so far are applied together, so pages are copied and published once no
+	 * matter how many writes a worker made in the meantime.
+	 */
+	private void applyWrites() {
+		if (Looper.myLooper() != Looper.getMainLooper()) {
+			if (applyWritesPosted.compareAndSet(false, true)) {
+				mainHandler.post(applyWritesRunnable);
+			}
+			return;
+		}
+		List<PageListDiff.Change<Page>> write = pendingWrites.poll();
+		if (write == null) {
+			return;
+		}
+		List<PageListDiff.Change<Page>> next = pendingWrites.poll();
+		if (next == null) {
+			applyChanges(write);
+			return;
+		}
+		List<PageListDiff.Change<Page>> changes = new ArrayList<>(write);
+		do {
+			changes.addAll(next);
+		} while ((next = pendingWrites.poll()) != null);
+		applyChanges(changes);
+	}
+
+	/**
+	 * publish one copy of {@link #pages} with all changes applied and move everything kept by
+	 * index along with its page, then report the changes in order and update residency. indices
+	 * of bitmaps and decodes are followed through the changes, so a batch of k changes copies
+	 * pages and bitmaps once instead of k times. called on main thread.
+	 */
+	private void applyChanges(List<PageListDiff.Change<Page>> changes) {
+		List<Page> newPages = new ArrayList<>(pages);
+		//indices of bitmaps and decodes after each change, -1 once their page is gone
+		int[] bitmapIndices = new int[bitmaps.size()];
+		for (int i = 0; i < bitmapIndices.length; i++) {
+			bitmapIndices[i] = bitmaps.keyAt(i);
+		}
+		int[] decodeKeys = new int[decodingPages.size()];
+		int[] decodeIndices = new int[decodeKeys.length];
+		boolean[] decodesCanceled = new boolean[decodeKeys.length];
+		for (int i = 0; i < decodeKeys.length; i++) {
+			decodeKeys[i] = decodingPages.keyAt(i);
+			decodeIndices[i] = decodeKeys[i];
+		}
+		for (int c = 0; c < changes.size(); c++) {
+			PageListDiff.Change<Page> change = changes.get(c);
+			int type = change.type;
+			int index = change.index;
+			int toIndex = change.toIndex;
+			if (type == PageListDiff.REPLACE) {
+				Page oldPage = newPages.set(index, change.item);
+				Uri oldUri = oldPage == null ? null : oldPage.getLocalUri();
+				Uri newUri = change.item == null ? null : change.item.getLocalUri();
+				if (oldUri == null ? newUri != null : !oldUri.equals(newUri)) {
+					for (int i = 0; i < bitmapIndices.length; i++) {
+						if (bitmapIndices[i] == index) {
+							bitmapIndices[i] = -1;
+						}
+					}
+					for (int i = 0; i < decodeIndices.length; i++) {
+						if (decodeIndices[i] == index) {
+							decodeIndices[i] = -1;
+							decodesCanceled[i] = true;
+						}
+					}
+				}
+				continue;
+			}
+			switch (type) {
+				case PageListDiff.INSERT:
+					newPages.add(index, change.item);
+					break;
+				case PageListDiff.REMOVE:
+					newPages.remove(index);
+					break;
+				default:
+					newPages.add(toIndex, newPages.remove(index));
+					break;
+			}
+			for (int i = 0; i < bitmapIndices.length; i++) {
+				if (bitmapIndices[i] >= 0) {
+					bitmapIndices[i] = PageListDiff.mapIndex(type, index, toIndex, bitmapIndices[i]);
+				}
+			}
+			for (int i = 0; i < decodeIndices.length; i++) {
+				if (decodeIndices[i] >= 0) {
+					decodeIndices[i] = PageListDiff.mapIndex(type, index, toIndex, decodeIndices[i]);
+				}
+			}
+			residencyCenter = mapCurrentIndex(type, index, toIndex, residencyCenter, newPages.size());
+			if (landingIndex != NO_INDEX) {
+				landingIndex = mapCurrentIndex(type, index, toIndex, landingIndex, newPages.size());
+			}
+		}
+		pages = Collections.unmodifiableList(newPages);
+		for (int i = 0; i < decodeKeys.length; i++) {
+			if (decodesCanceled[i]) {
+				cancelDecode(decodeKeys[i]);
+			} else if (decodeIndices[i] != decodeKeys[i]) {
+				detachDecode(decodeKeys[i]);
+			}
+		}
+		SparseArray<DecodedBitmap> oldBitmaps = bitmaps.clone();
+		bitmaps.clear();
+		for (int i = 0; i < bitmapIndices.length; i++) {
+			if (bitmapIndices[i] < 0) {
+				//bitmaps may be shared through BitmapMemoryCache, so they are released instead of recycled
+				BitmapMemoryCache.getInstance().release(oldBitmaps.valueAt(i).bitmap);
+			} else {
+				bitmaps.put(bitmapIndices[i], oldBitmaps.valueAt(i));
+			}
+		}
 		if (onStateChangeListener != null) {
-			onStateChangeListener.onPageAdd();
+			for (int c = 0; c < changes.size(); c++) {
+				PageListDiff.Change<Page> change = changes.get(c);
+				onStateChangeListener.onPageListChanged(change.type, change.index, change.toIndex);
+			}
+			onStateChangeListener.onPageListChangesApplied();
 		}
+		updateResidency();
 	}
 
-	public void addAllPages(Collection<? extends Page> page) {
-		pages.addAll(page);
+	/**
+	 * @param pageCount number of pages after the change
+	 * @return index of current page after a change, the page after it becomes current if it is removed
+	 */
+	private int mapCurrentIndex(int type, int index, int toIndex, int current, int pageCount) {
+		int mapped = PageListDiff.mapIndex(type, index, toIndex, current);
+		if (mapped >= 0) {
+			return mapped;
+		}
+		if (loop) {
+			return pageCount == 0 ? 0 : SliderMath.getFixedIndex(current, pageCount);
+		}
+		return Math.max(0, Math.min(current, pageCount - 1));
+	}
+
+	/**
+	 * forget decode of page at index because the page moved to another index. a pending decode is
+	 * cancelled, a running one finishes into {@link BitmapMemoryCache} and its result is dropped
+	 * by {@link #publishBitmap}, so decoding the page at its new index usually hits memory cache.
+	 */
+	private void detachDecode(int index) {
+		CancellationSignal signal = decodingPages.get(index);
+		if (signal != null) {
+			if (decodeScheduler.remove(index)) {
+				signal.cancel();
+			}
+			decodingPages.remove(index);
+			lowQualityDecodes.delete(index);
+		}
+	}
+
+	private static void checkIndex(int index, int size) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+		}
+	}
+
+	/**
+	 * load pages on demand from dataSource instead of holding all of them, replacing any page
+	 * added before. pages are loaded in chunks of chunkSize around residency center and landing
+	 * index, and at most maxChunks chunks are kept in memory. until its chunk is loaded,
+	 * {@link #getPage(int)} returns null for a page and it is drawn without image and text.
+	 * must be called on main thread, changes of pages which are not applied yet are dropped.
+	 *
+	 * @param dataSource null to go back to pages added by {@link #addPage(Page)}, which is empty then
+	 * @param maxChunks  at least enough chunks to cover the residency windows, see {@link #setResidencyRadius(int)}
+	 */
+	public void setDataSource(PageDataSource dataSource, int chunkSize, int maxChunks) {
+		cancelAllDecodes();
+		refreshGeneration++;
+		for (int i = bitmaps.size() - 1; i >= 0; i--) {
+			evictBitmap(bitmaps.keyAt(i));
+		}
+		synchronized (writeLock) {
+			pendingWrites.clear();
+			queuedPages = dataSource == null ? new ArrayList<Page>() : null;
+		}
+		pages = Collections.emptyList();
+		if (dataSource == null) {
+			pageWindow = null;
+		} else {
+			pageWindow = new PageWindow(dataSource, chunkSize, maxChunks, PageWindow.DEFAULT_RETRY_DELAY_MILLIS, PAGE_LOAD_EXECUTOR, new Executor() {
+				@Override
+				public void execute(Runnable command) {
+					mainHandler.post(command);
+				}
+			}, new PageWindow.Listener() {
+				@Override
+				public void onPagesLoaded(int start, int count) {
+					prefetchResidentPages();
+					if (onStateChangeListener != null) {
+						onStateChangeListener.onPagesLoaded(start, count);
+					}
+				}
+
+				@Override
+				public void onLoadFailed(final int start, int count, RuntimeException e, long retryDelayMillis) {
+					Log.w(MXSlider.DEBUG_TAG, "failed to load pages " + start + " to " + (start + count - 1), e);
+					//an idle slider draws nothing which would request them again
+					mainHandler.postDelayed(new Runnable() {
+						@Override
+						public void run() {
+							//pages may come from another data source by now, retrying early does no harm then
+							PageWindow window = pageWindow;
+							if (window != null) {
+								window.allowRetry(start);
+								prefetchResidentPages();
+							}
+						}
+					}, retryDelayMillis);
+				}
+			});
+		}
+		updateResidency();
 		if (onStateChangeListener != null) {
 			onStateChangeListener.onPageAdd();
 		}
 	}
 
+	/**
+	 * like {@link #setDataSource(PageDataSource, int, int)} with default chunk size of
+	 * {@value PageWindow#DEFAULT_CHUNK_SIZE} pages and {@value PageWindow#DEFAULT_MAX_CHUNKS} chunks
+	 */
+	public void setDataSource(PageDataSource dataSource) {
+		setDataSource(dataSource, PageWindow.DEFAULT_CHUNK_SIZE, PageWindow.DEFAULT_MAX_CHUNKS);
+	}
+
+	public PageDataSource getDataSource() {
+		return pageWindow == null ? null : pageWindow.getDataSource();
+	}
+
+	/**
+	 * read page count of data source again and reload its pages and bitmaps, must be called on
+	 * main thread whenever data source changes
+	 */
+	public void notifyDataSetChanged() {
+		if (pageWindow == null) {
+			return;
+		}
+		setDataSource(pageWindow.getDataSource());
+	}
+
+	/**
+	 * decode bitmaps of resident pages again in background for the given size, also if it did not
+	 * change, e.g. because their images changed on disk. their bitmaps are dropped from
+	 * {@link BitmapMemoryCache} so they are read again, thumbnails on disk are only used if the
+	 * modification time of their image did not change. current bitmaps are still drawn until
+	 * their new bitmaps arrive, see {@link OnStateChangeListener#onBitmapLoaded(int)}.
+	 * must be called on main thread.
+	 */
 	public void refreshBitmaps(int width, int height) {
 		Log.w(MXSlider.DEBUG_TAG, "refreshBitmaps is called!");
-		for (Bitmap bitmap : bitmaps) {
-			bitmap.recycle();
+		mainHandler.removeCallbacks(pendingRefresh);
+		refreshPending = false;
+		BitmapMemoryCache cache = BitmapMemoryCache.getInstance();
+		for (int i = 0; i < bitmaps.size(); i++) {
+			DecodedBitmap decodedBitmap = bitmaps.valueAt(i);
+			//no longer matches any target size, so it is decoded again
+			decodedBitmap.width = 0;
+			decodedBitmap.height = 0;
+			Page page = getLoadedPage(bitmaps.keyAt(i));
+			if (page != null && page.getLocalUri() != null) {
+				cache.remove(page.getLocalUri());
+			}
 		}
-		bitmaps.clear();
-		for (Page page : pages) {
-			bitmaps.add(getBitmapFromUri(page.getLocalUri(), width, height));
+		setTargetSize(width, height, false);
+	}
+
+	/**
+	 * like {@link #refreshBitmaps(int, int)}, but only if size changed, and bitmaps whose sample
+	 * size is the same for the new size are kept as they are. used on layout, where size mostly
+	 * stays the same.
+	 */
+	void refreshBitmapsIfSizeChanged(int width, int height) {
+		mainHandler.removeCallbacks(pendingRefresh);
+		boolean wasPending = refreshPending;
+		refreshPending = false;
+		if (width == targetWidth && height == targetHeight) {
+			if (wasPending) {
+				//decodes cancelled by requestRefreshBitmaps are needed again
+				prefetchResidentPages();
+			}
+			return;
+		}
+		setTargetSize(width, height, true);
+	}
+
+	/**
+	 * @param keepReusable whether to keep bitmaps which are what would be decoded for the new size
+	 */
+	private void setTargetSize(int width, int height, boolean keepReusable) {
+		refreshGeneration++;
+		targetWidth = width;
+		targetHeight = height;
+		cancelAllDecodes();
+		if (keepReusable) {
+			for (int i = 0; i < bitmaps.size(); i++) {
+				DecodedBitmap decodedBitmap = bitmaps.valueAt(i);
+				Page page = getLoadedPage(bitmaps.keyAt(i));
+				if (!decodedBitmap.lowQuality && page != null && canReuse(decodedBitmap, page.getLocalUri())) {
+					decodedBitmap.width = width;
+					decodedBitmap.height = height;
+				}
+			}
+		}
+		prefetchResidentPages();
+	}
+
+	/**
+	 * like {@link #refreshBitmapsIfSizeChanged(int, int)}, but coalesces calls within
+	 * {@link #REFRESH_DELAY} so only the last size is decoded. does nothing if size did not
+	 * change. decodes for an outdated size are cancelled right away and current bitmaps keep
+	 * being drawn in the meantime. must be called on main thread.
+	 */
+	public void requestRefreshBitmaps(int width, int height) {
+		pendingRefreshWidth = width;
+		pendingRefreshHeight = height;
+		if (width == targetWidth && height == targetHeight) {
+			//back to current size before the pending refresh ran
+			refreshBitmapsIfSizeChanged(width, height);
+			return;
+		}
+		mainHandler.removeCallbacks(pendingRefresh);
+		cancelAllDecodes();
+		refreshPending = true;
+		mainHandler.postDelayed(pendingRefresh, REFRESH_DELAY);
+	}
+
+	private void cancelAllDecodes() {
+		for (int i = 0; i < decodingPages.size(); i++) {
+			decodingPages.valueAt(i).cancel();
+		}
+		decodingPages.clear();
+		lowQualityDecodes.clear();
+		decodeScheduler.clear();
+	}
+
+	private void cancelDecode(int index) {
+		CancellationSignal signal = decodingPages.get(index);
+		if (signal != null) {
+			signal.cancel();
+			decodingPages.remove(index);
+			lowQualityDecodes.delete(index);
+			decodeScheduler.remove(index);
+		}
+	}
+
+	/**
+	 * decode pages for {@link #LOW_QUALITY_DIVISOR} times smaller size while they are only shown
+	 * for a few frames, e.g. during a fast fling. pages around landing index are still decoded
+	 * in full quality. once set back to false, resident pages in low quality are decoded again
+	 * in full quality and kept drawn until then. must be called on main thread.
+	 */
+	public void setLowQuality(boolean lowQuality) {
+		if (lowQuality == this.lowQuality) {
+			return;
+		}
+		this.lowQuality = lowQuality;
+		if (!lowQuality) {
+			for (int i = decodingPages.size() - 1; i >= 0; i--) {
+				int index = decodingPages.keyAt(i);
+				if (lowQualityDecodes.get(index)) {
+					cancelDecode(index);
+				}
+			}
+			prefetchResidentPages();
+		}
+	}
+
+	public boolean isLowQuality() {
+		return lowQuality;
+	}
+
+	/**
+	 * whether page at index should be decoded in low quality now
+	 */
+	private boolean shouldDecodeInLowQuality(int index) {
+		return lowQuality && (landingIndex == NO_INDEX || !isWithinRadius(index, landingIndex));
+	}
+
+	private boolean isFullQuality(DecodedBitmap decodedBitmap) {
+		return !decodedBitmap.lowQuality && decodedBitmap.width == targetWidth && decodedBitmap.height == targetHeight;
+	}
+
+	private boolean isLowQuality(DecodedBitmap decodedBitmap) {
+		return decodedBitmap.lowQuality && decodedBitmap.width == getLowQualitySize(targetWidth) && decodedBitmap.height == getLowQualitySize(targetHeight);
+	}
+
+	private static int getLowQualitySize(int size) {
+		return Math.max(1, size / LOW_QUALITY_DIVISOR);
+	}
+
+	/**
+	 * whether a bitmap is exactly what would be decoded for current target size, which is the
+	 * case if its sample size does not change and it is not cropped to the old size
+	 */
+	private boolean canReuse(DecodedBitmap decodedBitmap, Uri uri) {
+		if (decodedBitmap.width == targetWidth && decodedBitmap.height == targetHeight) {
+			return true;
+		}
+		if (CROP_IMAGES || uri == null) {
+			return false;
+		}
+		int[] bounds = BitmapMemoryCache.getInstance().getBounds(uri);
+		return bounds != null && decodedBitmap.sampleSize == calculateInSampleSize(bounds[0], bounds[1], targetWidth, targetHeight);
+	}
+
+	/**
+	 * move the residency window to the page at index. pages leaving the window are evicted
+	 * and pages entering it are decoded, nearest first. must be called on main thread.
+	 *
+	 * @param index current page, wrapped with {@link #getFixedIndex(int)} when looping
+	 * @return whether the window moved
+	 */
+	public boolean setResidencyCenter(int index) {
+		if (loop && getPageCount() > 0) {
+			index = getFixedIndex(index);
+		}
+		if (index == residencyCenter) {
+			return false;
+		}
+		residencyCenter = index;
+		updateResidency();
+		return true;
+	}
+
+	public int getResidencyCenter() {
+		return residencyCenter;
+	}
+
+	/**
+	 * keep pages within residency radius of index as well, and decode them right away before any
+	 * other page, so the page where a fling lands is usually ready when it gets there.
+	 * must be called on main thread.
+	 *
+	 * @param index page the slider is moving to, wrapped with {@link #getFixedIndex(int)} when looping
+	 */
+	public void setLandingIndex(int index) {
+		if (loop && getPageCount() > 0) {
+			index = getFixedIndex(index);
+		}
+		if (index == landingIndex) {
+			return;
+		}
+		landingIndex = index;
+		updateResidency();
+	}
+
+	/**
+	 * forget the page set by {@link #setLandingIndex(int)}, its pages are evicted unless they are
+	 * around residency center. must be called on main thread.
+	 */
+	public void clearLandingIndex() {
+		if (landingIndex == NO_INDEX) {
+			return;
+		}
+		landingIndex = NO_INDEX;
+		updateResidency();
+	}
+
+	/**
+	 * @return page set by {@link #setLandingIndex(int)}, or -1
+	 */
+	public int getLandingIndex() {
+		return landingIndex == NO_INDEX ? -1 : landingIndex;
+	}
+
+	/**
+	 * @param radius number of pages kept decoded on each side of current page, at least
+	 *               {@link #MIN_RESIDENCY_RADIUS} as pages that far away are still drawn
+	 * @throws IllegalArgumentException if radius is less than {@link #MIN_RESIDENCY_RADIUS}
+	 */
+	public void setResidencyRadius(int radius) {
+		if (radius < MIN_RESIDENCY_RADIUS) {
+			throw new IllegalArgumentException("radius must be at least " + MIN_RESIDENCY_RADIUS + ": " + radius);
+		}
+		if (radius == residencyRadius) {
+			return;
+		}
+		residencyRadius = radius;
+		updateResidency();
+	}
+
+	public int getResidencyRadius() {
+		return residencyRadius;
+	}
+
+	/**
+	 * whether page at index belongs to the residency window around residency center or landing
+	 * index, respecting wrap-around when looping
+	 */
+	boolean isResident(int index) {
+		return isWithinRadius(index, residencyCenter) || (landingIndex != NO_INDEX && isWithinRadius(index, landingIndex));
+	}
+
+	private boolean isWithinRadius(int index, int center) {
+		return SliderMath.getDistance(index, center, getPageCount(), loop) <= residencyRadius;
+	}
+
+	private void updateResidency() {
+		updateDecodeFocus();
+		for (int i = decodingPages.size() - 1; i >= 0; i--) {
+			int index = decodingPages.keyAt(i);
+			if (!isResident(index)) {
+				cancelDecode(index);
+			}
+		}
+		for (int i = bitmaps.size() - 1; i >= 0; i--) {
+			int index = bitmaps.keyAt(i);
+			if (index >= getPageCount() || !isResident(index)) {
+				evictBitmap(index);
+			}
+		}
+		prefetchResidentPages();
+	}
+
+	private void evictBitmap(int index) {
+		//bitmaps may be shared through BitmapMemoryCache, so they are released instead of recycled
+		DecodedBitmap decodedBitmap = bitmaps.get(index);
+		if (decodedBitmap != null) {
+			bitmaps.remove(index);
+			BitmapMemoryCache.getInstance().release(decodedBitmap.bitmap);
+		}
+	}
+
+	private void prefetchResidentPages() {
+		if (getPageCount() == 0) {
+			return;
+		}
+		updateDecodeFocus();
+		if (landingIndex != NO_INDEX) {
+			prefetchPagesAround(landingIndex);
+		}
+		prefetchPagesAround(residencyCenter);
+	}
+
+	/**
+	 * reorder pending decodes for current residency window and drop the ones outside of it
+	 */
+	private void updateDecodeFocus() {
+		decodeScheduler.setFocus(residencyCenter, getLandingIndex(), residencyRadius, getPageCount(), loop);
+	}
+
+	/**
+	 * decode pages within residency radius of center, nearest first
+	 */
+	private void prefetchPagesAround(int center) {
+		for (int distance = 0; distance <= residencyRadius; distance++) {
+			prefetchPage(center - distance);
+			prefetchPage(center + distance);
+		}
+	}
+
+	private void prefetchPage(int index) {
+		index = resolveIndex(index);
+		if (index < 0) {
+			return;
+		}
+		DecodedBitmap decodedBitmap = bitmaps.get(index);
+		boolean lowQuality = shouldDecodeInLowQuality(index);
+		//a full quality bitmap is good for both, a low quality one only while decoding in low quality
+		if (decodedBitmap == null || !(isFullQuality(decodedBitmap) || (lowQuality && isLowQuality(decodedBitmap)))) {
+			decodeAsync(index, lowQuality);
+		}
+	}
+
+	/**
+	 * decode bitmap of page at index on background thread with current target size.
+	 * does nothing if bitmaps have never been refreshed because target size is unknown, if a
+	 * refresh for a new size is pending, if page is outside of residency window or if it is
+	 * already being decoded.
+	 *
+	 * @param lowQuality whether to decode for {@link #LOW_QUALITY_DIVISOR} times smaller size
+	 */
+	private void decodeAsync(final int index, final boolean lowQuality) {
+		if (targetWidth <= 0 || targetHeight <= 0 || refreshPending || !isResident(index) || decodingPages.get(index) != null) {
+			return;
+		}
+		final Page page = getLoadedPage(index);
+		if (page == null) {
+			//decoded once its chunk is loaded
+			return;
+		}
+		final CancellationSignal signal = new CancellationSignal();
+		decodingPages.put(index, signal);
+		if (lowQuality) {
+			lowQualityDecodes.put(index, true);
+		}
+		final Uri uri = page.getLocalUri();
+		final int width = lowQuality ? getLowQualitySize(targetWidth) : targetWidth;
+		final int height = lowQuality ? getLowQualitySize(targetHeight) : targetHeight;
+		final int generation = refreshGeneration;
+		decodeScheduler.submit(new DecodeScheduler.Task(index) {
+			@Override
+			public void run() {
+				if (signal.isCanceled()) {
+					return;
+				}
+				Bitmap bitmap = null;
+				try {
+					bitmap = getBitmapFromUri(uri, width, height, lowQuality, signal);
+				} catch (Exception e) {
+					Log.e(MXSlider.DEBUG_TAG, String.valueOf(uri), e);
+				}
+				final DecodedBitmap result;
+				if (bitmap == null) {
+					result = null;
+				} else {
+					int[] bounds = BitmapMemoryCache.getInstance().getBounds(uri);
+					result = new DecodedBitmap(bitmap, bounds == null ? 0 : calculateInSampleSize(bounds[0], bounds[1], width, height), width, height, lowQuality);
+				}
+				mainHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						publishBitmap(index, page, generation, signal, result);
+					}
+				});
+			}
+
+			@Override
+			void onDropped() {
+				signal.cancel();
+				if (decodingPages.get(index) == signal) {
+					decodingPages.remove(index);
+					lowQualityDecodes.delete(index);
+				}
+			}
+		});
+	}
+
+	private void publishBitmap(int index, Page page, int generation, CancellationSignal signal, DecodedBitmap decodedBitmap) {
+		if (decodingPages.get(index) == signal) {
+			decodingPages.remove(index);
+			lowQualityDecodes.delete(index);
+		}
+		if (decodedBitmap == null) {
+			//decoding failed or was cancelled, keep the old bitmap if any
+			return;
+		}
+		if (signal.isCanceled() || generation != refreshGeneration || index >= getPageCount() || !isResident(index)
+				|| (pageWindow == null && pages.get(index) != page)) {//page moved while being decoded
+			BitmapMemoryCache.getInstance().release(decodedBitmap.bitmap);
+			return;
+		}
+		DecodedBitmap current = bitmaps.get(index);
+		if (decodedBitmap.lowQuality && current != null && isFullQuality(current)) {
+			BitmapMemoryCache.getInstance().release(decodedBitmap.bitmap);
+			return;
+		}
+		evictBitmap(index);
+		bitmaps.put(index, decodedBitmap);
+		if (onStateChangeListener != null) {
+			onStateChangeListener.onBitmapLoaded(index);
 		}
 	}
 
+	/**
+	 * @return bitmap with a reference held by caller, which must be released through
+	 * {@link BitmapMemoryCache#release(Bitmap)} when it is no longer displayed
+	 */
+	Bitmap getBitmapFromUri(Uri uri, int width, int height) {
+		return getBitmapFromUri(uri, width, height, false, null);
+	}
 
-	private Bitmap getBitmapFromUri(Uri uri, int width, int height) {
-		Log.i(MXSlider.DEBUG_TAG, "getBitmapFromUri start uri = " + uri.toString());
+	/**
+	 * @param lowQuality whether this is a throwaway decode of {@link #setLowQuality(boolean)},
+	 *                   which neither reads nor writes {@link ThumbnailDiskCache}, so it stays
+	 *                   cheap and does not evict full size thumbnails
+	 * @param signal     cancels the decode between its stages, null is returned then. decoding of
+	 *                   pixels itself can not be interrupted
+	 */
+	private Bitmap getBitmapFromUri(Uri uri, int width, int height, boolean lowQuality, CancellationSignal signal) {
 		Bitmap result = null;
 		if (uri == null) {
 			return result;
 		}
-		String scheme = uri.getScheme();
-		if (scheme.equals(ContentResolver.SCHEME_FILE)) {
-			try {
-				String path = uri.getPath();
-				InputStream stream = new FileInputStream(path);
-				BitmapFactory.Options option = getOptionFromStream(stream);
-				stream.close();
-				stream = new FileInputStream(path);
-				result = decodeStream(stream, option, width, height);
-			} catch (Exception e) {
-				Log.e(MXSlider.DEBUG_TAG, "", e);
+		int scheme = DecodeMetrics.indexOf(uri.getScheme());
+		if (scheme < 0) {
+			throw new IllegalArgumentException("Scheme '" + uri.getScheme() + "' not supported!");
+		}
+		DecodeMetrics metrics = DecodeMetrics.getInstance();
+		BitmapMemoryCache cache = BitmapMemoryCache.getInstance();
+		int[] bounds = cache.getBounds(uri);
+		if (bounds != null) {
+			result = cache.acquire(new BitmapMemoryCache.Key(uri, width, height, calculateInSampleSize(bounds[0], bounds[1], width, height)));
+			if (result != null) {
+				metrics.recordMemoryHit(scheme);
+				return result;
 			}
-		} else if (scheme.equals(MXSlider.SCHEME_ASSETS)) {
+		}
+		if (signal != null && signal.isCanceled()) {
+			metrics.recordCancel(scheme);
+			return null;
+		}
+		String diskKey = null;
+		ThumbnailDiskCache diskCache = diskCacheEnabled && !lowQuality ? getDiskCache(context) : null;
+		if (diskCache != null) {
+			long stamp = getModificationStamp(uri);
+			if (stamp > 0) {
+				diskKey = ThumbnailDiskCache.keyOf(uri.toString(), stamp, width, height, CROP_IMAGES);
+				metrics.beginTrace(DecodeMetrics.TRACE_DISK);
+				try {
+					result = getBitmapFromDisk(diskCache, diskKey, uri, width, height);
+				} finally {
+					metrics.endTrace();
+				}
+				if (result != null) {
+					metrics.recordDiskHit(scheme);
+					return result;
+				}
+			}
+		}
+		try {
+			if (signal != null) {
+				signal.throwIfCanceled();
+			}
+			//header and pixels are read from the same stream, it is only reopened if header
+			//is larger than MARK_LIMIT
+			InputStream stream = openMarkableStream(uri, scheme);
 			try {
-				String path = uri.getPath();
-				if (path.startsWith("/")) {
-					path = path.replaceFirst("/+", "");
+				stream.mark(MARK_LIMIT);
+				BitmapFactory.Options option = getOptionFromStream(stream, scheme);
+				cache.putBounds(uri, option.outWidth, option.outHeight);
+				BitmapMemoryCache.Key key = new BitmapMemoryCache.Key(uri, width, height, calculateInSampleSize(option.outWidth, option.outHeight, width, height));
+				if (bounds == null) {
+					//another slider may have decoded it in the meantime
+					result = cache.acquire(key);
+				}
+				if (result == null) {
+					if (signal != null) {
+						signal.throwIfCanceled();
+					}
+					try {
+						stream.reset();
+					} catch (IOException e) {
+						stream.close();
+						stream = openMarkableStream(uri, scheme);
+					}
+					try {
+						result = decodeStream(stream, option, width, height, true, signal, scheme);
+					} catch (IllegalArgumentException e) {
+						//pooled bitmap could not be reused for this image, decode into a new one
+						stream.close();
+						stream = openMarkableStream(uri, scheme);
+						result = decodeStream(stream, option, width, height, false, signal, scheme);
+					}
+					if (result == null) {
+						if (signal != null && signal.isCanceled()) {
+							metrics.recordCancel(scheme);
+						} else {
+							metrics.recordFailure(scheme, DecodeMetrics.FAILURE_NO_BITMAP);
+						}
+					} else {
+						cache.putAndAcquire(key, result);
+						if (diskKey != null) {
+							putBitmapToDisk(diskCache, diskKey, result, option.outWidth, option.outHeight);
+						}
+					}
 				}
-				InputStream stream = context.getAssets().open(path);
-				BitmapFactory.Options option = getOptionFromStream(stream);
+			} finally {
 				stream.close();
-				stream = context.getAssets().open(path);
-				result = decodeStream(stream, option, width, height);
-			} catch (Exception e) {
-				Log.e(MXSlider.DEBUG_TAG, "", e);
 			}
-		} else if (scheme.equals(ContentResolver.SCHEME_CONTENT) || scheme.equals(ContentResolver.SCHEME_ANDROID_RESOURCE)) {
+		} catch (OperationCanceledException e) {
+			metrics.recordCancel(scheme);
+			return null;
+		} catch (Exception e) {
+			metrics.recordFailure(scheme, e.getClass().getName());
+			Log.e(MXSlider.DEBUG_TAG, uri.toString(), e);
+		}
+		return result;
+	}
+
+	private Bitmap getBitmapFromDisk(ThumbnailDiskCache diskCache, String diskKey, Uri uri, int width, int height) {
+		ByteBuffer buffer = diskCache.get(diskKey);
+		if (buffer == null) {
+			return null;
+		}
+		int[] bounds = new int[2];
+		Bitmap bitmap = ThumbnailCodec.decode(buffer, bounds);
+		if (bitmap == null) {
+			diskCache.remove(diskKey);
+			return null;
+		}
+		BitmapMemoryCache cache = BitmapMemoryCache.getInstance();
+		cache.putBounds(uri, bounds[0], bounds[1]);
+		cache.putAndAcquire(new BitmapMemoryCache.Key(uri, width, height, calculateInSampleSize(bounds[0], bounds[1], width, height)), bitmap);
+		return bitmap;
+	}
+
+	private void putBitmapToDisk(ThumbnailDiskCache diskCache, String diskKey, Bitmap bitmap, int sourceWidth, int sourceHeight) {
+		ByteBuffer buffer = ThumbnailCodec.encode(bitmap, sourceWidth, sourceHeight);
+		if (buffer == null) {
+			return;
+		}
+		try {
+			diskCache.put(diskKey, buffer);
+		} catch (IOException e) {
+			Log.w(MXSlider.DEBUG_TAG, "failed to write thumbnail", e);
+		}
+	}
+
+	private static synchronized ThumbnailDiskCache getDiskCache(Context context) {
+		if (diskCache == null && !diskCacheOpenFailed) {
 			try {
-				InputStream stream = context.getContentResolver().openInputStream(uri);
-				BitmapFactory.Options option = getOptionFromStream(stream);
-				stream.close();
-				stream = context.getContentResolver().openInputStream(uri);
-				result = decodeStream(stream, option, width, height);
-			} catch (Exception e) {
-				Log.e(MXSlider.DEBUG_TAG, uri.toString(), e);
+				diskCache = new ThumbnailDiskCache(new File(context.getCacheDir(), DISK_CACHE_DIRECTORY), DEFAULT_DISK_CACHE_SIZE);
+			} catch (IOException e) {
+				Log.w(MXSlider.DEBUG_TAG, "failed to open thumbnail cache", e);
+				diskCacheOpenFailed = true;
+			}
+		}
+		return diskCache;
+	}
+
+	/**
+	 * @param maxBytes max size of thumbnails on disk shared by all PageManagers
+	 */
+	public static void setDiskCacheMaxSize(Context context, long maxBytes) {
+		ThumbnailDiskCache diskCache = getDiskCache(context);
+		if (diskCache != null) {
+			diskCache.setMaxSize(maxBytes);
+		}
+	}
+
+	public void setDiskCacheEnabled(boolean diskCacheEnabled) {
+		this.diskCacheEnabled = diskCacheEnabled;
+	}
+
+	public boolean isDiskCacheEnabled() {
+		return diskCacheEnabled;
+	}
+
+	/**
+	 * a value which changes whenever the image at uri changes, used to invalidate thumbnails.
+	 * assets and resources can only change with their APK, so the package's update time is used.
+	 * stamps other than those of files, which take a query, are kept in {@link BitmapMemoryCache}
+	 * until {@link #refreshBitmaps(int, int)} drops them.
+	 *
+	 * @return the stamp, or a value &lt;= 0 if it is unknown and the image should not be cached on disk
+	 */
+	long getModificationStamp(Uri uri) {
+		if (uri.getScheme().equals(ContentResolver.SCHEME_FILE)) {
+			return new File(uri.getPath()).lastModified();
+		}
+		BitmapMemoryCache cache = BitmapMemoryCache.getInstance();
+		Long stamp = cache.getModificationStamp(uri);
+		if (stamp == null) {
+			stamp = queryModificationStamp(uri);
+			cache.putModificationStamp(uri, stamp);
+		}
+		return stamp;
+	}
+
+	private long queryModificationStamp(Uri uri) {
+		String scheme = uri.getScheme();
+		if (scheme.equals(MXSlider.SCHEME_ASSETS)) {
+			return getPackageUpdateTime(context.getPackageName());
+		} else if (scheme.equals(ContentResolver.SCHEME_ANDROID_RESOURCE)) {
+			return getPackageUpdateTime(uri.getAuthority());
+		}
+		Cursor cursor = null;
+		try {
+			cursor = context.getContentResolver().query(uri, null, null, null, null);
+			if (cursor != null && cursor.moveToFirst()) {
+				for (String column : new String[]{DocumentsContract.Document.COLUMN_LAST_MODIFIED, MediaStore.MediaColumns.DATE_MODIFIED}) {
+					int columnIndex = cursor.getColumnIndex(column);
+					if (columnIndex >= 0 && !cursor.isNull(columnIndex)) {
+						return cursor.getLong(columnIndex);
+					}
+				}
+			}
+		} catch (Exception e) {
+			Log.w(MXSlider.DEBUG_TAG, "no modification stamp for " + uri, e);
+		} finally {
+			if (cursor != null) {
+				cursor.close();
+			}
+		}
+		return -1;
+	}
+
+	private long getPackageUpdateTime(String packageName) {
+		try {
+			return context.getPackageManager().getPackageInfo(packageName, 0).lastUpdateTime;
+		} catch (PackageManager.NameNotFoundException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * open uri as a stream supporting mark() and reset() up to {@link #MARK_LIMIT}.
+	 * open calls and bytes pulled from the source are recorded in {@link DecodeMetrics}.
+	 * <p>
+	 * assets are returned as they are, they can seek back on their own and BitmapFactory reads
+	 * them natively only if they are not wrapped. so their length is recorded instead of the
+	 * bytes actually read.
+	 */
+	private InputStream openMarkableStream(Uri uri, final int scheme) throws IOException {
+		DecodeMetrics.getInstance().recordStreamOpen(scheme);
+		InputStream source = openStream(uri);
+		if (scheme == DecodeMetrics.SCHEME_ASSETS) {
+			//available() of an asset is its remaining length
+			DecodeMetrics.getInstance().recordBytesRead(scheme, source.available());
+			return source;
+		}
+		final CountingInputStream counter = new CountingInputStream(source);
+		return new BufferedInputStream(counter, STREAM_BUFFER_SIZE) {
+			@Override
+			public void close() throws IOException {
+				super.close();
+				DecodeMetrics.getInstance().recordBytesRead(scheme, counter.getCount());
 			}
+		};
+	}
+
+	private InputStream openStream(Uri uri) throws IOException {
+		String scheme = uri.getScheme();
+		if (scheme.equals(ContentResolver.SCHEME_FILE)) {
+			return new FileInputStream(uri.getPath());
+		} else if (scheme.equals(MXSlider.SCHEME_ASSETS)) {
+			String path = uri.getPath();
+			if (path.startsWith("/")) {
+				path = path.replaceFirst("/+", "");
+			}
+			return context.getAssets().open(path);
 		} else {
-			throw new IllegalArgumentException("Scheme '" + scheme + "' not supported!");
+			return context.getContentResolver().openInputStream(uri);
 		}
-		Log.i(MXSlider.DEBUG_TAG, "getBitmapFromUri end uri = " + uri.toString());
-		return result;
 	}
 
-	private BitmapFactory.Options getOptionFromStream(InputStream stream) {
+	private BitmapFactory.Options getOptionFromStream(InputStream stream, int scheme) {
+		DecodeMetrics metrics = DecodeMetrics.getInstance();
 		BitmapFactory.Options options = new BitmapFactory.Options();
 		options.inJustDecodeBounds = true;
-		BitmapFactory.decodeStream(stream, null, options);
+		long start = System.nanoTime();
+		metrics.beginTrace(DecodeMetrics.TRACE_BOUNDS);
+		try {
+			BitmapFactory.decodeStream(stream, null, options);
+		} finally {
+			metrics.endTrace();
+		}
+		metrics.recordBounds(scheme, System.nanoTime() - start);
 		return options;
 	}
 
-	private Bitmap decodeStream(InputStream stream, BitmapFactory.Options options2, int width, int height) {
+	/**
+	 * @param reuse  whether to decode into a bitmap from {@link BitmapPool}
+	 * @param signal checked once pixels are decoded, null is returned if it is cancelled. may be null
+	 * @throws IllegalArgumentException if reuse is true and the pooled bitmap does not fit,
+	 *                                  stream has to be reopened to decode again then
+	 */
+	private Bitmap decodeStream(InputStream stream, BitmapFactory.Options options2, int width, int height, boolean reuse, CancellationSignal signal, int scheme) {
+		DecodeMetrics metrics = DecodeMetrics.getInstance();
 		BitmapFactory.Options options = new BitmapFactory.Options();
-		options.inSampleSize = calculateInSampleSize(options2, width, height);
+		options.inSampleSize = calculateInSampleSize(options2.outWidth, options2.outHeight, width, height);
 		options.inJustDecodeBounds = false;
-		Bitmap bitmap = BitmapFactory.decodeStream(stream, null, options);
+		options.inMutable = true;
+		if (reuse) {
+			//size is rounded up because some decoders round sampled sizes up
+			options.inBitmap = BitmapPool.getInstance().get(
+					(options2.outWidth + options.inSampleSize - 1) / options.inSampleSize,
+					(options2.outHeight + options.inSampleSize - 1) / options.inSampleSize,
+					Bitmap.Config.ARGB_8888);
+		}
+		Bitmap bitmap;
+		long start = System.nanoTime();
+		metrics.beginTrace(DecodeMetrics.TRACE_DECODE);
+		try {
+			bitmap = BitmapFactory.decodeStream(stream, null, options);
+		} catch (IllegalArgumentException e) {
+			BitmapPool.getInstance().put(options.inBitmap);
+			throw e;
+		} finally {
+			metrics.endTrace();
+		}
+		if (bitmap != options.inBitmap) {
+			//decoder failed or did not use the pooled bitmap
+			BitmapPool.getInstance().put(options.inBitmap);
+		}
+		if (bitmap == null) {
+			return null;
+		}
+		if (signal != null && signal.isCanceled()) {
+			//there is no one to hand it to, BitmapFactory can not stop while decoding pixels
+			BitmapPool.getInstance().put(bitmap);
+			return null;
+		}
+		metrics.recordDecode(scheme, options.inSampleSize, bitmap.getByteCount(), System.nanoTime() - start);
 		if (CROP_IMAGES) {
-			return cropAndScaleBitmap(bitmap, width, height);
-		} else {
-			return bitmap;
+			start = System.nanoTime();
+			metrics.beginTrace(DecodeMetrics.TRACE_CROP);
+			try {
+				bitmap = cropAndScaleBitmap(bitmap, width, height);
+			} finally {
+				metrics.endTrace();
+			}
+			metrics.recordCrop(scheme, System.nanoTime() - start);
 		}
+		return bitmap;
 	}
 
+	/**
+	 * draw the centered part of bitmap with aspect ratio of width / height into a pooled
+	 * bitmap of exactly width * height. bitmap itself is returned to the pool.
+	 */
 	private Bitmap cropAndScaleBitmap(Bitmap bitmap, int width, int height) {
 		int w;
 		int h;
@@ -132,88 +1366,150 @@ public class PageManager {
 			h = bitmap.getHeight();
 			w = (int) (h * width * 1.0 / height);
 		}
-		Bitmap croppedBitmap = Bitmap.createBitmap(bitmap, (bitmap.getWidth() - w) / 2, (bitmap.getHeight() - h) / 2, w, h);
-		if (bitmap != croppedBitmap) {
-			bitmap.recycle();
-		}
-		Bitmap scaledBitmap = Bitmap.createScaledBitmap(croppedBitmap, width, height, true);
-		if (croppedBitmap != scaledBitmap) {
-			croppedBitmap.recycle();
-		}
+		int left = (bitmap.getWidth() - w) / 2;
+		int top = (bitmap.getHeight() - h) / 2;
+		Bitmap scaledBitmap = BitmapPool.getInstance().getCleared(width, height, Bitmap.Config.ARGB_8888);
+		//every pixel is drawn, so an opaque image stays opaque and is stored as JPEG on disk
+		scaledBitmap.setHasAlpha(bitmap.hasAlpha());
+		Canvas canvas = new Canvas(scaledBitmap);
+		canvas.drawBitmap(bitmap, new Rect(left, top, left + w, top + h), new Rect(0, 0, width, height), new Paint(Paint.FILTER_BITMAP_FLAG));
+		BitmapPool.getInstance().put(bitmap);
 		return scaledBitmap;
 	}
 
-	private int calculateInSampleSize(BitmapFactory.Options options, int reqWidth, int reqHeight) {
-		// Raw height and width of image
-		final int height = options.outHeight;
-		final int width = options.outWidth;
-		int inSampleSize = 1;
-
-		if (height > reqHeight || width > reqWidth) {
-
-			final int halfHeight = height / 2;
-			final int halfWidth = width / 2;
-
-			// Calculate the largest inSampleSize value that is a power of 2 and keeps both
-			// height and width larger than the requested height and width.
-			while ((halfHeight / inSampleSize) > reqHeight && (halfWidth / inSampleSize) > reqWidth) {
-				inSampleSize *= 2;
-			}
-		}
-
-		return inSampleSize;
+	private int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+		return SliderMath.calculateInSampleSize(width, height, reqWidth, reqHeight);
 	}
 
+	/**
+	 * can be called on any thread, see {@link #getPage(int)}
+	 */
 	public int getPageCount() {
-		return pages.size();
+		PageWindow window = pageWindow;
+		return window == null ? pages.size() : window.getPageCount();
 	}
 
+	/**
+	 * @param index in [0, page count)
+	 * @return page at index, null if it comes from data source and is not loaded yet
+	 */
+	private Page getLoadedPage(int index) {
+		return pageWindow == null ? pages.get(index) : pageWindow.getPage(index);
+	}
+
+	/**
+	 * can be called on any thread without locking. it reads pages as of the last change applied
+	 * on main thread, changes from other threads are seen once main thread applied them. off main
+	 * thread a page of a {@link PageDataSource} is only returned if its chunk is loaded already.
+	 */
 	public Page getPage(int index) {
-		if (loop) {
-			index = getFixedIndex(index);
-		} else {
-			if (index < 0 || index > getPageCount()) {
-				return null;
-			}
+		PageWindow window = pageWindow;
+		List<Page> pages = this.pages;
+		index = SliderMath.resolveIndex(index, window == null ? pages.size() : window.getPageCount(), loop);
+		if (index < 0) {
+			return null;
+		}
+		if (window == null) {
+			return pages.get(index);
 		}
-		return pages.get(index);
+		return Looper.myLooper() == Looper.getMainLooper() ? window.getPage(index) : window.peekPage(index);
 	}
 
+	/**
+	 * must be called on main thread, bitmaps are released there once their pages leave the residency window
+	 */
 	public Bitmap getBitmap(int index) {
-		if (loop) {
-			index = getFixedIndex(index);
-		} else {
-			if (index < 0 || index > getPageCount()) {
-				return null;
-			}
-		}
-		return bitmaps.get(index);
+		index = resolveIndex(index);
+		DecodedBitmap decodedBitmap = index < 0 ? null : bitmaps.get(index);
+		return decodedBitmap == null ? null : decodedBitmap.bitmap;
 	}
 
-	private int getFixedIndex(int index) {
-		if (index < 0 || index > getPageCount() - 1) {
-			if (index > 0) {
-				index = index % getPageCount();
-			} else {
-				if (index % getPageCount() == 0) {
-					index = 0;
-				} else {
-					index = getPageCount() + index % getPageCount();
-				}
-			}
-		}
-		return index;
+	/**
+	 * @return -1 if there are no pages
+	 */
+	int getFixedIndex(int index) {
+		return SliderMath.getFixedIndex(index, getPageCount());
+	}
+
+	/**
+	 * @return page drawn for index with current loop mode, or -1 if there is none,
+	 * see {@link SliderMath#resolveIndex(int, int, boolean)}
+	 */
+	int resolveIndex(int index) {
+		return SliderMath.resolveIndex(index, getPageCount(), loop);
 	}
 
 	public void setLoop(boolean loop) {
+		if (this.loop == loop) {
+			return;
+		}
 		this.loop = loop;
+		updateResidency();
 	}
 
 	public boolean getLoop() {
 		return loop;
 	}
 
+	/**
+	 * a decoded bitmap and the request it was decoded for
+	 */
+	private static final class DecodedBitmap {
+		final Bitmap bitmap;
+		/**
+		 * inSampleSize used for decoding, 0 if unknown
+		 */
+		final int sampleSize;
+		/**
+		 * target size it was decoded for, or which it is known to be identical to
+		 */
+		int width;
+		int height;
+		/**
+		 * whether it was decoded for target size divided by {@link #LOW_QUALITY_DIVISOR}, width
+		 * and height are that smaller size then
+		 */
+		final boolean lowQuality;
+
+		DecodedBitmap(Bitmap bitmap, int sampleSize, int width, int height, boolean lowQuality) {
+			this.bitmap = bitmap;
+			this.sampleSize = sampleSize;
+			this.width = width;
+			this.height = height;
+			this.lowQuality = lowQuality;
+		}
+	}
+
 	interface OnStateChangeListener {
+		/**
+		 * called on main thread when all pages are swapped for those of a data source or back
+		 */
 		void onPageAdd();
+
+		/**
+		 * called on main thread for every page added, inserted, removed, moved or replaced, see
+		 * {@link PageListDiff#mapIndex(int, int, int, int)} for how indices move. changes applied
+		 * together are reported in order after all of them are published, so page count is
+		 * already the final one, followed by {@link #onPageListChangesApplied()}.
+		 *
+		 * @param type one of {@link PageListDiff#INSERT}, {@link PageListDiff#REMOVE},
+		 *             {@link PageListDiff#MOVE} and {@link PageListDiff#REPLACE}
+		 */
+		void onPageListChanged(int type, int index, int toIndex);
+
+		/**
+		 * called on main thread after the changes of writes applied together are reported
+		 */
+		void onPageListChangesApplied();
+
+		/**
+		 * called on main thread when pages [start, start + count) are loaded from {@link PageDataSource}
+		 */
+		void onPagesLoaded(int start, int count);
+
+		/**
+		 * called on main thread when bitmap of page at index is decoded
+		 */
+		void onBitmapLoaded(int index);
 	}
 }
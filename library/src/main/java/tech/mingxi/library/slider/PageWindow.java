@@ -0,0 +1,292 @@
+package tech.mingxi.library.slider;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * pages of a {@link PageDataSource} in chunks of fixed size, of which at most maxChunks are
+ * kept in memory and the least recently used one is dropped first.
+ * <p>
+ * a page which is not in memory is loaded with its chunk on loadExecutor and published on
+ * publishExecutor, which runs on the thread all other methods are called on. chunks are
+ * looked up in a small array, so reading a loaded page does not allocate.
+ * <p>
+ * a chunk the data source failed to load, by throwing or by returning fewer pages, is requested
+ * again only after a delay which doubles with every failure, so drawing does not load it every
+ * frame. the listener is told the delay, so it can schedule the retry with
+ * {@link #allowRetry(int)} even if nothing is drawn in the meantime.
+ * <p>
+ * the array of chunks is replaced instead of changed, so {@link #peekPage(int)} and
+ * {@link #getPageCount()} can read it from any thread without locking.
+ */
+class PageWindow {
+	static final int DEFAULT_CHUNK_SIZE = 64;
+	/**
+	 * enough for residency windows around current page and landing page, each spanning 2 chunks
+	 */
+	static final int DEFAULT_MAX_CHUNKS = 8;
+	static final long DEFAULT_RETRY_DELAY_MILLIS = 1000;
+	/**
+	 * retry delay stops doubling after this many failures, at 64 times the first one
+	 */
+	private static final int MAX_RETRY_DELAY_SHIFT = 6;
+
+	interface Listener {
+		/**
+		 * pages [start, start + count) are loaded
+		 */
+		void onPagesLoaded(int start, int count);
+
+		/**
+		 * loading pages [start, start + count) failed. {@link #getPage(int)} requests them again
+		 * once retryDelayMillis passed or {@link #allowRetry(int)} is called
+		 *
+		 * @param e thrown by data source, or null if it returned fewer pages
+		 */
+		void onLoadFailed(int start, int count, RuntimeException e, long retryDelayMillis);
+	}
+
+	private final PageDataSource dataSource;
+	private final int chunkSize;
+	/**
+	 * delay before a failed chunk is requested again, doubled with every further failure
+	 */
+	private final long retryDelayMillis;
+	private final Executor loadExecutor;
+	private final Executor publishExecutor;
+	private final Listener listener;
+	/**
+	 * slots of chunks in memory, null if empty. copied on every change
+	 */
+	private volatile Chunk[] slots;
+	private final long[] lastUses;
+	private long useCount = 0;
+	/**
+	 * chunks being loaded
+	 */
+	private final HashSet<Integer> loadingChunks = new HashSet<>();
+	private volatile int pageCount;
+	/**
+	 * increased whenever data set changes, chunks loaded for older ones are dropped
+	 */
+	private int generation = 0;
+	/**
+	 * chunks whose last load failed in current generation
+	 */
+	private final HashMap<Integer, Failure> failures = new HashMap<>();
+
+	/**
+	 * @param retryDelayMillis delay before a chunk which failed to load is requested again,
+	 *                         doubled with every further failure
+	 */
+	PageWindow(PageDataSource dataSource, int chunkSize, int maxChunks, long retryDelayMillis, Executor loadExecutor, Executor publishExecutor, Listener listener) {
+		if (chunkSize <= 0 || maxChunks <= 0 || retryDelayMillis < 0) {
+			throw new IllegalArgumentException("chunkSize and maxChunks must be positive and retryDelayMillis not negative");
+		}
+		this.dataSource = dataSource;
+		this.chunkSize = chunkSize;
+		this.retryDelayMillis = retryDelayMillis;
+		this.loadExecutor = loadExecutor;
+		this.publishExecutor = publishExecutor;
+		this.listener = listener;
+		slots = new Chunk[maxChunks];
+		lastUses = new long[maxChunks];
+		reset();
+	}
+
+	PageDataSource getDataSource() {
+		return dataSource;
+	}
+
+	int getPageCount() {
+		return pageCount;
+	}
+
+	/**
+	 * read page count again and drop all chunks
+	 */
+	void reset() {
+		generation++;
+		slots = new Chunk[slots.length];
+		pageCount = Math.max(0, dataSource.getPageCount());
+		loadingChunks.clear();
+		failures.clear();
+	}
+
+	/**
+	 * @param index in [0, page count)
+	 * @return page at index, or null if it is not loaded yet. its chunk is loaded then
+	 */
+	Page getPage(int index) {
+		if (index < 0 || index >= pageCount) {
+			return null;
+		}
+		int chunk = index / chunkSize;
+		Chunk[] slots = this.slots;
+		int slot = findSlot(slots, chunk);
+		if (slot < 0) {
+			load(chunk);
+			return null;
+		}
+		lastUses[slot] = ++useCount;
+		Page page = slots[slot].pages[index - chunk * chunkSize];
+		if (page == null) {
+			//data source returned fewer pages, try again once retry delay is over
+			load(chunk);
+		}
+		return page;
+	}
+
+	/**
+	 * like {@link #getPage(int)}, but does not load anything or count as a use, so it can be
+	 * called on any thread
+	 */
+	Page peekPage(int index) {
+		if (index < 0 || index >= pageCount) {
+			return null;
+		}
+		Chunk[] slots = this.slots;
+		int slot = findSlot(slots, index / chunkSize);
+		if (slot < 0) {
+			return null;
+		}
+		Page[] pages = slots[slot].pages;
+		int offset = index % chunkSize;
+		//slots may belong to a data set of another size while resetting
+		return offset < pages.length ? pages[offset] : null;
+	}
+
+	boolean isLoaded(int index) {
+		return peekPage(index) != null;
+	}
+
+	/**
+	 * let the chunk of page at index be requested again right away if it failed to load,
+	 * e.g. once the delay passed to {@link Listener#onLoadFailed} is over
+	 */
+	void allowRetry(int index) {
+		Failure failure = failures.get(index / chunkSize);
+		if (failure != null) {
+			failure.retryTime = 0;
+		}
+	}
+
+	private static int findSlot(Chunk[] slots, int chunk) {
+		for (int i = 0; i < slots.length; i++) {
+			if (slots[i] != null && slots[i].index == chunk) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void load(final int chunk) {
+		Failure failure = failures.get(chunk);
+		if (failure != null && getUptimeMillis() < failure.retryTime) {
+			return;
+		}
+		if (!loadingChunks.add(chunk)) {
+			return;
+		}
+		final int start = chunk * chunkSize;
+		final int count = Math.min(chunkSize, pageCount - start);
+		final int generation = this.generation;
+		loadExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				List<? extends Page> result = null;
+				RuntimeException error = null;
+				try {
+					result = dataSource.loadPages(start, count);
+				} catch (RuntimeException e) {
+					//e.g. a cursor failing, which must not take down the load thread
+					error = e;
+				}
+				final List<? extends Page> pages = result;
+				final RuntimeException e = error;
+				publishExecutor.execute(new Runnable() {
+					@Override
+					public void run() {
+						publish(chunk, generation, pages, e);
+					}
+				});
+			}
+		});
+	}
+
+	private void publish(int chunk, int generation, List<? extends Page> pages, RuntimeException e) {
+		if (generation != this.generation) {
+			return;
+		}
+		loadingChunks.remove(chunk);
+		int start = chunk * chunkSize;
+		int count = Math.min(chunkSize, pageCount - start);
+		if (e != null || pages == null || pages.size() < count) {
+			onLoadFailed(chunk, start, count, e);
+		} else {
+			failures.remove(chunk);
+		}
+		if (pages == null || pages.isEmpty()) {
+			return;
+		}
+		Page[] loaded = new Page[count];
+		for (int i = 0; i < count && i < pages.size(); i++) {
+			loaded[i] = pages.get(i);
+		}
+		Chunk[] slots = this.slots.clone();
+		int slot = findSlot(slots, chunk);
+		if (slot < 0) {
+			slot = getLeastRecentlyUsedSlot(slots);
+		}
+		slots[slot] = new Chunk(chunk, loaded);
+		this.slots = slots;
+		lastUses[slot] = ++useCount;
+		listener.onPagesLoaded(start, Math.min(count, pages.size()));
+	}
+
+	private void onLoadFailed(int chunk, int start, int count, RuntimeException e) {
+		Failure failure = failures.get(chunk);
+		if (failure == null) {
+			failure = new Failure();
+			failures.put(chunk, failure);
+		}
+		long delay = retryDelayMillis << Math.min(failure.count, MAX_RETRY_DELAY_SHIFT);
+		failure.count++;
+		failure.retryTime = getUptimeMillis() + delay;
+		listener.onLoadFailed(start, count, e, delay);
+	}
+
+	private static long getUptimeMillis() {
+		return System.nanoTime() / 1000000;
+	}
+
+	private int getLeastRecentlyUsedSlot(Chunk[] slots) {
+		int slot = 0;
+		for (int i = 0; i < slots.length; i++) {
+			if (slots[i] == null) {
+				return i;
+			}
+			if (lastUses[i] < lastUses[slot]) {
+				slot = i;
+			}
+		}
+		return slot;
+	}
+
+	private static final class Failure {
+		int count;
+		long retryTime;
+	}
+
+	private static final class Chunk {
+		final int index;
+		final Page[] pages;
+
+		Chunk(int index, Page[] pages) {
+			this.index = index;
+			this.pages = pages;
+		}
+	}
+}
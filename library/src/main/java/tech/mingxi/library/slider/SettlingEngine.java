@@ -0,0 +1,137 @@
+package tech.mingxi.library.slider;
+
+/**
+ * settling of MXSlider from touch-up or an animated {@link MXSlider#setIndex(int, boolean)} to
+ * rest, driven by frame timestamps in nanoseconds such as the ones of
+ * {@link android.view.Choreographer.FrameCallback}.
+ * <p>
+ * the motion is given by a {@link SettlingPhysics}, {@link ConstantDecelerationPhysics} by
+ * default, and always ends exactly after covering displacement. it is a pure function of the
+ * timestamps passed in, so it can be tested and benchmarked with a fake clock.
+ * <p>
+ * settling starts at the time passed to {@link #fling} or {@link #snap}. frame timestamps are
+ * vsync times, and a frame may have started before settling was requested in it, so the first
+ * frame is always treated as at least one frame interval after the start. this way the first
+ * frame already moves.
+ */
+class SettlingEngine {
+	static final long DEFAULT_FRAME_INTERVAL_NANOS = 1000000000L / 60;
+	private static final double MILLIS_PER_NANO = 1e-6;
+
+	private SettlingPhysics physics = new ConstantDecelerationPhysics();
+	private long frameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+	private boolean running = false;
+	/**
+	 * whether a frame has been handled since settling started
+	 */
+	private boolean started = false;
+	private long startTimeNanos;
+	/**
+	 * total distance to go, in px
+	 */
+	private float displacement;
+	/**
+	 * distance covered at last frame
+	 */
+	private float currentDisplacement;
+
+	/**
+	 * takes effect from next settling
+	 */
+	void setPhysics(SettlingPhysics physics) {
+		if (physics == null) {
+			throw new IllegalArgumentException("physics must not be null");
+		}
+		this.physics = physics;
+	}
+
+	SettlingPhysics getPhysics() {
+		return physics;
+	}
+
+	void setFrameIntervalNanos(long frameIntervalNanos) {
+		if (frameIntervalNanos > 0) {
+			this.frameIntervalNanos = frameIntervalNanos;
+		}
+	}
+
+	long getFrameIntervalNanos() {
+		return frameIntervalNanos;
+	}
+
+	/**
+	 * settle with given start velocity to stop exactly after displacement
+	 *
+	 * @param displacement in px
+	 * @param velocity     in px per ms
+	 * @param timeNanos    when settling starts, usually time of touch-up
+	 */
+	void fling(float displacement, float velocity, long timeNanos) {
+		start(displacement, velocity, timeNanos);
+	}
+
+	/**
+	 * settle from rest to stop exactly after displacement
+	 *
+	 * @param displacement in px
+	 * @param timeNanos    when settling starts
+	 */
+	void snap(float displacement, long timeNanos) {
+		start(displacement, 0, timeNanos);
+	}
+
+	private void start(float displacement, float velocity, long timeNanos) {
+		this.displacement = displacement;
+		startTimeNanos = timeNanos;
+		currentDisplacement = 0;
+		started = false;
+		running = displacement != 0;
+		if (running) {
+			physics.start(displacement, velocity);
+		}
+	}
+
+	void cancel() {
+		running = false;
+	}
+
+	boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * advance to a frame
+	 *
+	 * @return whether settling goes on after this frame
+	 */
+	boolean onFrame(long frameTimeNanos) {
+		if (!running) {
+			return false;
+		}
+		if (!started) {
+			started = true;
+			if (frameTimeNanos - startTimeNanos < frameIntervalNanos) {
+				startTimeNanos = frameTimeNanos - frameIntervalNanos;
+			}
+		}
+		float timeOffset = (float) ((frameTimeNanos - startTimeNanos) * MILLIS_PER_NANO);
+		if (physics.isFinished(timeOffset)) {
+			currentDisplacement = displacement;
+			running = false;
+		} else {
+			currentDisplacement = physics.getDisplacement(timeOffset);
+		}
+		return running;
+	}
+
+	/**
+	 * @return distance covered at last frame, in px. equals to total displacement once settling ended
+	 */
+	float getDisplacement() {
+		return currentDisplacement;
+	}
+
+	float getTotalDisplacement() {
+		return displacement;
+	}
+}
@@ -0,0 +1,42 @@
+package tech.mingxi.library.slider;
+
+/**
+ * motion of {@link MXSlider} settling to a page after touch-up or an animated
+ * {@link MXSlider#setIndex(int, boolean)}, see {@link MXSlider#setSettlingPhysics(SettlingPhysics)}.
+ * <p>
+ * distances are in px and times in ms. a positive displacement moves towards previous pages,
+ * same as a positive velocity of finger.
+ * <p>
+ * {@link #getDisplacement(float)} and {@link #isFinished(float)} are called on every frame, so
+ * they must not allocate. anything which does not depend on time should be computed in
+ * {@link #start(float, float)}.
+ */
+public interface SettlingPhysics {
+	/**
+	 * @param velocity at touch-up of a fling, in px per ms
+	 * @return distance the fling would travel on its own. slider lands on the page nearest to
+	 * where it ends, but at least on the next page in direction of the fling
+	 */
+	float getFlingDistance(float velocity);
+
+	/**
+	 * prepare a motion which starts with velocity and comes to rest after covering displacement
+	 *
+	 * @param displacement not 0
+	 * @param velocity     in px per ms, 0 if settling is not started by a fling
+	 */
+	void start(float displacement, float velocity);
+
+	/**
+	 * @param time since start, in ms
+	 * @return distance covered at time
+	 */
+	float getDisplacement(float time);
+
+	/**
+	 * @param time since start, in ms
+	 * @return whether motion is close enough to rest at time. slider is moved exactly to
+	 * displacement then
+	 */
+	boolean isFinished(float time);
+}
@@ -0,0 +1,170 @@
+package tech.mingxi.library.slider;
+
+/**
+ * hot-path math of PageManager and MXSlider without any Android dependency, so it can be
+ * benchmarked and tested on a plain JVM
+ */
+class SliderMath {
+	/**
+	 * e^-x is tabulated for x in [0, EXP_TABLE_RANGE) in steps of 1 / EXP_TABLE_RESOLUTION, and
+	 * taken as 0 beyond, where it is about 1e-7
+	 */
+	private static final int EXP_TABLE_RANGE = 16;
+	private static final int EXP_TABLE_RESOLUTION = 256;
+	private static final float[] EXP_TABLE = new float[EXP_TABLE_RANGE * EXP_TABLE_RESOLUTION + 1];
+	/**
+	 * up to this many pages, [-pageCount, 2 * pageCount) fits in an int
+	 */
+	private static final int MAX_NEAR_WRAP_PAGE_COUNT = 1 << 30;
+
+	static {
+		for (int i = 0; i < EXP_TABLE.length; i++) {
+			EXP_TABLE[i] = (float) Math.exp(-(double) i / EXP_TABLE_RESOLUTION);
+		}
+	}
+
+	/**
+	 * @return e^-x for x >= 0, interpolated from a table. relative error is below 1e-5
+	 */
+	static float expNegative(float x) {
+		if (x <= 0) {
+			return 1;
+		}
+		float position = x * EXP_TABLE_RESOLUTION;
+		if (position >= EXP_TABLE.length - 1) {
+			return 0;
+		}
+		int index = (int) position;
+		float fraction = position - index;
+		return EXP_TABLE[index] + (EXP_TABLE[index + 1] - EXP_TABLE[index]) * fraction;
+	}
+
+	/**
+	 * wrap index into [0, pageCount) for looping
+	 *
+	 * @return -1 if there is no page
+	 */
+	static int getFixedIndex(int index, int pageCount) {
+		return resolveIndex(index, pageCount, true);
+	}
+
+	/**
+	 * page drawn for index, shared by every lookup of PageManager and MXSlider. when looping, indices
+	 * at most one round away, which are nearly all of them, are wrapped without a division or an
+	 * unpredictable branch; others by one remainder, without Math.floorMod which needs API 24.
+	 *
+	 * @param pageCount at least 0
+	 * @return index wrapped into [0, pageCount) when looping, index itself if it is in range when
+	 * not looping, or -1 if there is no page for it
+	 */
+	static int resolveIndex(int index, int pageCount, boolean loop) {
+		if (loop && pageCount <= MAX_NEAR_WRAP_PAGE_COUNT && index >= -pageCount && index < pageCount << 1) {
+			//add pageCount to negative indices, then take it off those past the end
+			index += pageCount & (index >> 31);
+			return index - (pageCount & ~((index - pageCount) >> 31));
+		}
+		if (isInRange(index, pageCount)) {
+			return index;
+		}
+		if (!loop || pageCount <= 0) {
+			return -1;
+		}
+		int remainder = index % pageCount;
+		//remainder has the sign of index, pageCount is added to negative ones without a branch
+		return remainder + (pageCount & (remainder >> 31));
+	}
+
+	/**
+	 * @param pageCount at least 0
+	 * @return whether index is in [0, pageCount), by comparing both as unsigned ints
+	 */
+	static boolean isInRange(int index, int pageCount) {
+		return (index ^ Integer.MIN_VALUE) < (pageCount ^ Integer.MIN_VALUE);
+	}
+
+	/**
+	 * @return number of pages between index and center, the shorter way around when looping
+	 */
+	static int getDistance(int index, int center, int pageCount, boolean loop) {
+		int distance = Math.abs(index - center);
+		if (loop && pageCount > 0) {
+			distance = getFixedIndex(distance, pageCount);
+			distance = Math.min(distance, pageCount - distance);
+		}
+		return distance;
+	}
+
+	/**
+	 * @return largest power of 2 which keeps both sides of sampled image larger than requested
+	 */
+	static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+		int inSampleSize = 1;
+
+		if (height > reqHeight || width > reqWidth) {
+
+			final int halfHeight = height / 2;
+			final int halfWidth = width / 2;
+
+			// Calculate the largest inSampleSize value that is a power of 2 and keeps both
+			// height and width larger than the requested height and width.
+			while ((halfHeight / inSampleSize) > reqHeight && (halfWidth / inSampleSize) > reqWidth) {
+				inSampleSize *= 2;
+			}
+		}
+
+		return inSampleSize;
+	}
+
+	/**
+	 * @return swipePosition wrapped into [0, pageCount) when looping, otherwise clamped into
+	 * [0, pageCount - 1]. 0 if there is no page, or swipePosition is NaN or too large to wrap
+	 */
+	static float fixSwipePosition(float swipePosition, int pageCount, boolean loop) {
+		if (!loop) {
+			//also false for NaN
+			if (!(swipePosition > 0) || pageCount <= 0) {
+				return 0;
+			}
+			return swipePosition > pageCount - 1 ? pageCount - 1 : swipePosition;
+		}
+		//also false for NaN and infinities
+		if (!(swipePosition > Integer.MIN_VALUE && swipePosition < Integer.MAX_VALUE) || pageCount <= 0) {
+			return 0;
+		}
+		//wrap the page and keep the fraction
+		int index = (int) swipePosition;
+		if (swipePosition < index) {
+			index--;
+		}
+		float fixed = resolveIndex(index, pageCount, true) + (swipePosition - index);
+		//fraction of a tiny negative position rounds up to 1
+		return fixed < pageCount ? fixed : 0;
+	}
+
+	/**
+	 * @param flingPages distance the fling travels on its own in pages, positive towards previous pages
+	 * @param toPrevious direction of the fling
+	 * @return page nearest to where the fling ends, but at least the next one in its direction.
+	 * clamped into [0, pageCount - 1] when not looping
+	 */
+	static int getFlingTargetIndex(float swipePosition, float flingPages, boolean toPrevious, int pageCount, boolean loop) {
+		int index = (int) swipePosition;
+		int target = Math.round(swipePosition - flingPages);
+		if (toPrevious) {
+			index = Math.min(index, target);
+		} else {
+			index = Math.max(index + 1, target);
+		}
+		if (!loop && pageCount > 0) {
+			index = Math.max(0, Math.min(pageCount - 1, index));
+		}
+		return index;
+	}
+
+	/**
+	 * @return displacement after timeOffset of a motion with constant acceleration
+	 */
+	static float getSettlingDisplacement(float startVelocity, float acceleration, float timeOffset) {
+		return startVelocity * timeOffset + 0.5f * acceleration * timeOffset * timeOffset;
+	}
+}
@@ -0,0 +1,105 @@
+package tech.mingxi.library.slider;
+
+/**
+ * a damped spring pulling towards the landing page, starting with velocity at touch-up.
+ * an underdamped spring overshoots and bounces back, a critically damped one does not.
+ * <p>
+ * where a fling lands is projected with friction like {@link DecayPhysics}, so a strong fling
+ * crosses several pages.
+ */
+public class SpringPhysics implements SettlingPhysics {
+	/**
+	 * in 1 / ms^2
+	 */
+	public static final float DEFAULT_STIFFNESS = 0.0004f;
+	public static final float DAMPING_RATIO_CRITICAL = 1f;
+	public static final float DEFAULT_DAMPING_RATIO = 0.85f;
+	/**
+	 * motion ends when it is this close to displacement in px, and slower than this in px per ms
+	 */
+	private static final float REST_THRESHOLD = 0.5f;
+	private static final float REST_VELOCITY_THRESHOLD = 0.01f;
+
+	/**
+	 * decay rate of a free fling in 1 / ms, a fling travels velocity / friction px
+	 */
+	private final float friction;
+	/**
+	 * natural angular frequency, in 1 / ms
+	 */
+	private final float omega;
+	private final float dampingRatio;
+	/**
+	 * angular frequency of damped oscillation, 0 if critically damped
+	 */
+	private final float dampedOmega;
+	private float displacement;
+	/**
+	 * coefficients of the offset from rest: e^(-dampingRatio * omega * t) * (a cos(dampedOmega * t) + b sin(dampedOmega * t)),
+	 * or e^(-omega * t) * (a + b t) if critically damped
+	 */
+	private float a;
+	private float b;
+
+	public SpringPhysics() {
+		this(DEFAULT_STIFFNESS, DEFAULT_DAMPING_RATIO);
+	}
+
+	public SpringPhysics(float stiffness, float dampingRatio) {
+		this(stiffness, dampingRatio, DecayPhysics.DEFAULT_FRICTION);
+	}
+
+	/**
+	 * @param stiffness    spring constant per unit mass, in 1 / ms^2
+	 * @param dampingRatio in (0, 1], 1 for a spring which does not overshoot
+	 * @param friction     decay rate per ms to project where a fling lands, see {@link DecayPhysics}
+	 */
+	public SpringPhysics(float stiffness, float dampingRatio, float friction) {
+		if (stiffness <= 0 || dampingRatio <= 0 || dampingRatio > 1 || friction <= 0) {
+			throw new IllegalArgumentException("stiffness and friction must be positive and dampingRatio in (0, 1]");
+		}
+		this.friction = friction;
+		omega = (float) Math.sqrt(stiffness);
+		this.dampingRatio = dampingRatio;
+		dampedOmega = dampingRatio == 1 ? 0 : (float) (omega * Math.sqrt(1 - dampingRatio * dampingRatio));
+	}
+
+	@Override
+	public float getFlingDistance(float velocity) {
+		return velocity / friction;
+	}
+
+	@Override
+	public void start(float displacement, float velocity) {
+		this.displacement = displacement;
+		//offset starts at -displacement and its derivative at velocity
+		a = -displacement;
+		if (dampedOmega == 0) {
+			b = velocity + omega * a;
+		} else {
+			b = (velocity + dampingRatio * omega * a) / dampedOmega;
+		}
+	}
+
+	@Override
+	public float getDisplacement(float time) {
+		return displacement + getOffset(time);
+	}
+
+	@Override
+	public boolean isFinished(float time) {
+		if (Math.abs(getOffset(time)) >= REST_THRESHOLD) {
+			return false;
+		}
+		//velocity from a step of 1ms, precise enough to tell whether spring is at rest
+		return Math.abs(getOffset(time + 1) - getOffset(time)) < REST_VELOCITY_THRESHOLD;
+	}
+
+	private float getOffset(float time) {
+		if (dampedOmega == 0) {
+			return (a + b * time) * SliderMath.expNegative(omega * time);
+		}
+		float angle = dampedOmega * time;
+		return SliderMath.expNegative(dampingRatio * omega * time) * (float) (a * Math.cos(angle) + b * Math.sin(angle));
+	}
+}
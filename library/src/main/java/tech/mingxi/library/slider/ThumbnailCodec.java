@@ -0,0 +1,109 @@
+package tech.mingxi.library.slider;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * format of thumbnails in {@link ThumbnailDiskCache}: a fixed header followed by the thumbnail
+ * compressed at its target size, JPEG for opaque ones and WebP for those with alpha. raw pixels
+ * would save decoding a thumbnail, which is small, but take 4 bytes per pixel, so only a few
+ * full-screen covers would fit in the cache.
+ * <pre>
+ *     int magic
+ *     int width, int height
+ *     int format (0: JPEG, 1: WebP)
+ *     int sourceWidth, int sourceHeight (bounds of original image)
+ *     byte[] compressed image
+ * </pre>
+ */
+class ThumbnailCodec {
+	private static final int MAGIC = 0x4D585432;//"MXT2"
+	private static final int HEADER_SIZE = 6 * 4;
+	private static final int FORMAT_JPEG = 0;
+	private static final int FORMAT_WEBP = 1;
+	private static final int QUALITY = 90;
+	/**
+	 * initial buffer size in bytes per pixel, about what a photo compresses to
+	 */
+	private static final float ESTIMATED_BYTES_PER_PIXEL = 0.25f;
+
+	/**
+	 * @return encoded thumbnail ready to be written, or null if bitmap could not be compressed
+	 */
+	static ByteBuffer encode(Bitmap bitmap, int sourceWidth, int sourceHeight) {
+		boolean opaque = !bitmap.hasAlpha();
+		ByteArrayOutputStream stream = new ByteArrayOutputStream(HEADER_SIZE + (int) (bitmap.getWidth() * bitmap.getHeight() * ESTIMATED_BYTES_PER_PIXEL));
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.order(ByteOrder.BIG_ENDIAN);
+		header.putInt(MAGIC);
+		header.putInt(bitmap.getWidth());
+		header.putInt(bitmap.getHeight());
+		header.putInt(opaque ? FORMAT_JPEG : FORMAT_WEBP);
+		header.putInt(sourceWidth);
+		header.putInt(sourceHeight);
+		stream.write(header.array(), 0, HEADER_SIZE);
+		if (!bitmap.compress(opaque ? Bitmap.CompressFormat.JPEG : Bitmap.CompressFormat.WEBP, QUALITY, stream)) {
+			return null;
+		}
+		return ByteBuffer.wrap(stream.toByteArray());
+	}
+
+	/**
+	 * @param bounds receives {sourceWidth, sourceHeight} of original image
+	 * @return decoded thumbnail, or null if buffer is not a valid thumbnail
+	 */
+	static Bitmap decode(ByteBuffer buffer, int[] bounds) {
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+			return null;
+		}
+		int width = buffer.getInt();
+		int height = buffer.getInt();
+		int format = buffer.getInt();
+		bounds[0] = buffer.getInt();
+		bounds[1] = buffer.getInt();
+		if (width <= 0 || height <= 0 || (format != FORMAT_JPEG && format != FORMAT_WEBP)) {
+			return null;
+		}
+		byte[] data;
+		int offset;
+		int length = buffer.remaining();
+		if (buffer.hasArray()) {
+			//decoded in place, e.g. from the reused read buffer of ThumbnailDiskCache
+			data = buffer.array();
+			offset = buffer.arrayOffset() + buffer.position();
+		} else {
+			data = new byte[length];
+			offset = 0;
+			buffer.get(data);
+		}
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inMutable = true;
+		options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+		options.inBitmap = BitmapPool.getInstance().get(width, height, Bitmap.Config.ARGB_8888);
+		Bitmap bitmap;
+		try {
+			bitmap = BitmapFactory.decodeByteArray(data, offset, length, options);
+		} catch (IllegalArgumentException e) {
+			//pooled bitmap could not be reused, decode into a new one
+			BitmapPool.getInstance().put(options.inBitmap);
+			options.inBitmap = null;
+			bitmap = BitmapFactory.decodeByteArray(data, offset, length, options);
+		}
+		if (bitmap != options.inBitmap) {
+			BitmapPool.getInstance().put(options.inBitmap);
+		}
+		if (bitmap == null) {
+			return null;
+		}
+		if (bitmap.getWidth() != width || bitmap.getHeight() != height) {
+			BitmapPool.getInstance().put(bitmap);
+			return null;
+		}
+		return bitmap;
+	}
+}
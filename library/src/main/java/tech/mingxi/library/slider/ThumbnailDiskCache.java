@@ -0,0 +1,396 @@
+package tech.mingxi.library.slider;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of pre-scaled thumbnails on disk, bounded by total file size in bytes.
+ * <p>
+ * every entry is one file named by its key. operations are appended to a journal so the LRU
+ * order survives restarts:
+ * <pre>
+ *     mxslider.thumbnails 1
+ *     CLEAN 3f2a... 262168
+ *     READ 3f2a...
+ *     REMOVE 3f2a...
+ * </pre>
+ * entries are written to a temp file and renamed before their CLEAN line is appended, so a
+ * crash at any point leaves either a complete entry or a file which is deleted on next open.
+ * a truncated or corrupted journal is tolerated by keeping the entries read so far. files are
+ * not synced to disk, an entry broken by a power loss fails to decode and is removed then.
+ * <p>
+ * READ lines only keep LRU order, so they are buffered and written with the next CLEAN or
+ * REMOVE line, or on close. entries are read outside of the lock into a buffer of the calling
+ * thread, so decode threads do not wait for each other's reads.
+ * <p>
+ * this class only deals with bytes, see {@link ThumbnailCodec} for the thumbnail format.
+ */
+class ThumbnailDiskCache {
+	static final String JOURNAL_FILE = "journal";
+	private static final String JOURNAL_FILE_TMP = "journal.tmp";
+	private static final String TMP_SUFFIX = ".tmp";
+	private static final String MAGIC = "mxslider.thumbnails";
+	private static final String VERSION = "1";
+	private static final String CLEAN = "CLEAN";
+	private static final String READ = "READ";
+	private static final String REMOVE = "REMOVE";
+	/**
+	 * journal is compacted when it has this many redundant lines and more than live entries
+	 */
+	private static final int REDUNDANT_OP_COMPACT_THRESHOLD = 2000;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	/**
+	 * buffer of each thread entries are read into, grown to the largest entry read on it
+	 */
+	private static final ThreadLocal<byte[]> READ_BUFFER = new ThreadLocal<>();
+
+	private final File directory;
+	private long maxSize;
+	private long size = 0;
+	/**
+	 * key to file size, in access order
+	 */
+	private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(0, 0.75f, true);
+	private int redundantOpCount = 0;
+	private Writer journalWriter;
+	private int hitCount = 0;
+	private int missCount = 0;
+	private int evictionCount = 0;
+
+	/**
+	 * open the cache in directory, creating it if needed
+	 *
+	 * @param maxSize max total size of all entries in bytes
+	 */
+	ThumbnailDiskCache(File directory, long maxSize) throws IOException {
+		this.directory = directory;
+		this.maxSize = maxSize;
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("failed to create " + directory);
+		}
+		readJournal();
+		deleteOrphanFiles();
+		rebuildJournal();
+		trimToSize();
+	}
+
+	/**
+	 * build a file-name safe key from everything which changes the content of a thumbnail
+	 *
+	 * @param source            uri of original image
+	 * @param modificationStamp last modification of original image
+	 */
+	static String keyOf(String source, long modificationStamp, int width, int height, boolean crop) {
+		String raw = source + '|' + modificationStamp + '|' + width + 'x' + height + '|' + crop;
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(raw.getBytes(UTF_8));
+			StringBuilder builder = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+				builder.append(Character.forDigit(b & 0xF, 16));
+			}
+			return builder.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * @return content of entry, or null if there is no such entry. it is backed by an array
+	 * which is reused by the next get() on the same thread
+	 */
+	ByteBuffer get(String key) {
+		Long length;
+		synchronized (this) {
+			length = entries.get(key);
+			if (length == null) {
+				missCount++;
+				return null;
+			}
+			hitCount++;
+			appendJournal(READ + ' ' + key, false);
+		}
+		byte[] buffer = READ_BUFFER.get();
+		if (buffer == null || buffer.length < length) {
+			buffer = new byte[(int) (long) length];
+			READ_BUFFER.set(buffer);
+		}
+		try {
+			InputStream stream = new FileInputStream(new File(directory, key));
+			try {
+				int read = 0;
+				while (read < length) {
+					int count = stream.read(buffer, read, (int) (length - read));
+					if (count < 0) {
+						throw new IOException("entry is shorter than " + length);
+					}
+					read += count;
+				}
+			} finally {
+				stream.close();
+			}
+		} catch (IOException e) {
+			//file is gone or broken, forget it unless it has been replaced in the meantime
+			synchronized (this) {
+				hitCount--;
+				missCount++;
+				if (length.equals(entries.get(key))) {
+					removeEntry(key);
+				}
+			}
+			return null;
+		}
+		return ByteBuffer.wrap(buffer, 0, (int) (long) length);
+	}
+
+	/**
+	 * store content as entry key, replacing old entry if any. content is read from its position
+	 * to its limit.
+	 */
+	synchronized void put(String key, ByteBuffer content) throws IOException {
+		File tmp = new File(directory, key + TMP_SUFFIX);
+		FileOutputStream stream = new FileOutputStream(tmp);
+		long length;
+		try {
+			length = content.remaining();
+			while (content.hasRemaining()) {
+				stream.getChannel().write(content);
+			}
+		} finally {
+			stream.close();
+		}
+		if (!tmp.renameTo(new File(directory, key))) {
+			tmp.delete();
+			throw new IOException("failed to rename " + tmp);
+		}
+		Long old = entries.put(key, length);
+		if (old != null) {
+			size -= old;
+		}
+		size += length;
+		appendJournal(CLEAN + ' ' + key + ' ' + length);
+		trimToSize();
+	}
+
+	synchronized boolean remove(String key) {
+		if (!entries.containsKey(key)) {
+			return false;
+		}
+		removeEntry(key);
+		return true;
+	}
+
+	synchronized void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+		trimToSize();
+	}
+
+	synchronized long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return total size of all entries in bytes
+	 */
+	synchronized long getSize() {
+		return size;
+	}
+
+	synchronized int getEntryCount() {
+		return entries.size();
+	}
+
+	synchronized int getHitCount() {
+		return hitCount;
+	}
+
+	synchronized int getMissCount() {
+		return missCount;
+	}
+
+	synchronized int getEvictionCount() {
+		return evictionCount;
+	}
+
+	synchronized void clear() {
+		for (String key : new ArrayList<>(entries.keySet())) {
+			removeEntry(key);
+		}
+	}
+
+	synchronized void close() throws IOException {
+		if (journalWriter != null) {
+			journalWriter.close();
+			journalWriter = null;
+		}
+	}
+
+	private void removeEntry(String key) {
+		Long length = entries.remove(key);
+		if (length != null) {
+			size -= length;
+		}
+		new File(directory, key).delete();
+		appendJournal(REMOVE + ' ' + key);
+	}
+
+	private void trimToSize() {
+		Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+		while (size > maxSize && iterator.hasNext()) {
+			Map.Entry<String, Long> eldest = iterator.next();
+			iterator.remove();
+			size -= eldest.getValue();
+			new File(directory, eldest.getKey()).delete();
+			appendJournal(REMOVE + ' ' + eldest.getKey());
+			evictionCount++;
+		}
+	}
+
+	private void readJournal() {
+		File journal = new File(directory, JOURNAL_FILE);
+		if (!journal.exists()) {
+			return;
+		}
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journal), UTF_8));
+			try {
+				String header = reader.readLine();
+				if (!(MAGIC + ' ' + VERSION).equals(header)) {
+					return;
+				}
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (!readJournalLine(line)) {
+						//truncated by a crash, keep what has been read so far
+						break;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			//unreadable journal, entries read so far are kept and the rest is swept as orphans
+		}
+		Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<String, Long> entry = iterator.next();
+			if (new File(directory, entry.getKey()).length() != entry.getValue()) {
+				//file is missing or was not completely written
+				iterator.remove();
+				size -= entry.getValue();
+			}
+		}
+	}
+
+	private boolean readJournalLine(String line) {
+		String[] parts = line.split(" ");
+		if (parts.length == 3 && CLEAN.equals(parts[0])) {
+			long length;
+			try {
+				length = Long.parseLong(parts[2]);
+			} catch (NumberFormatException e) {
+				return false;
+			}
+			if (length < 0) {
+				return false;
+			}
+			Long old = entries.put(parts[1], length);
+			if (old != null) {
+				size -= old;
+			}
+			size += length;
+		} else if (parts.length == 2 && READ.equals(parts[0])) {
+			entries.get(parts[1]);
+		} else if (parts.length == 2 && REMOVE.equals(parts[0])) {
+			Long old = entries.remove(parts[1]);
+			if (old != null) {
+				size -= old;
+			}
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * delete temp files and files which are not referenced by the journal
+	 */
+	private void deleteOrphanFiles() {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			String name = file.getName();
+			if (!name.equals(JOURNAL_FILE) && !entries.containsKey(name)) {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * write a compact journal with one CLEAN line per live entry in LRU order,
+	 * then atomically replace the old journal with it
+	 */
+	private void rebuildJournal() throws IOException {
+		if (journalWriter != null) {
+			journalWriter.close();
+		}
+		File tmp = new File(directory, JOURNAL_FILE_TMP);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), UTF_8));
+		try {
+			writer.write(MAGIC + ' ' + VERSION + '\n');
+			for (Map.Entry<String, Long> entry : entries.entrySet()) {
+				writer.write(CLEAN + ' ' + entry.getKey() + ' ' + entry.getValue() + '\n');
+			}
+		} finally {
+			writer.close();
+		}
+		if (!tmp.renameTo(new File(directory, JOURNAL_FILE))) {
+			throw new IOException("failed to rename " + tmp);
+		}
+		redundantOpCount = 0;
+		journalWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(directory, JOURNAL_FILE), true), UTF_8));
+	}
+
+	private void appendJournal(String line) {
+		appendJournal(line, true);
+	}
+
+	/**
+	 * @param flush whether to write the line and all buffered ones now
+	 */
+	private void appendJournal(String line, boolean flush) {
+		if (journalWriter == null) {
+			return;
+		}
+		try {
+			journalWriter.write(line + '\n');
+			if (flush) {
+				journalWriter.flush();
+			}
+			redundantOpCount++;
+			if (redundantOpCount >= REDUNDANT_OP_COMPACT_THRESHOLD && redundantOpCount >= entries.size()) {
+				rebuildJournal();
+			}
+		} catch (IOException e) {
+			//journal is only a hint for next launch, the in-memory state stays correct
+		}
+	}
+}
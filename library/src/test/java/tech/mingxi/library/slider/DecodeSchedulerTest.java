@@ -0,0 +1,146 @@
+package tech.mingxi.library.slider;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * runs {@link DecodeScheduler} on a fake executor which only runs posted work when asked to
+ */
+public class DecodeSchedulerTest {
+	private ArrayDeque<Runnable> posted;
+	private DecodeScheduler scheduler;
+	private List<Integer> decoded;
+	private List<Integer> dropped;
+
+	@Before
+	public void setUp() {
+		posted = new ArrayDeque<>();
+		decoded = new ArrayList<>();
+		dropped = new ArrayList<>();
+		scheduler = new DecodeScheduler(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				posted.add(command);
+			}
+		});
+	}
+
+	@Test
+	public void withoutFocus_runsInSubmissionOrder() {
+		submit(5, 0, 3);
+		runAll();
+		assertEquals(Arrays.asList(5, 0, 3), decoded);
+	}
+
+	@Test
+	public void runsNearestFirst() {
+		scheduler.setFocus(10, -1, 3, 100, false);
+		submit(7, 8, 9, 10, 11, 12, 13);
+		runAll();
+		//ties run in submission order
+		assertEquals(Arrays.asList(10, 9, 11, 8, 12, 7, 13), decoded);
+	}
+
+	@Test
+	public void distanceWrapsAroundWhenLooping() {
+		scheduler.setFocus(0, -1, 2, 10, true);
+		submit(2, 1, 9, 0, 8);
+		runAll();
+		assertEquals(Arrays.asList(0, 1, 9, 2, 8), decoded);
+	}
+
+	@Test
+	public void movingFocus_reprioritizesPendingTasks() {
+		scheduler.setFocus(0, -1, 10, 100, false);
+		submit(0, 1, 2, 3, 4);
+		runOne();
+		scheduler.setFocus(4, -1, 10, 100, false);
+		runAll();
+		assertEquals(Arrays.asList(0, 4, 3, 2, 1), decoded);
+	}
+
+	@Test
+	public void movingFocus_dropsTasksOutsideOfWindow() {
+		scheduler.setFocus(2, -1, 2, 100, false);
+		submit(0, 1, 2, 3, 4);
+		scheduler.setFocus(4, -1, 2, 100, false);
+		assertEquals(Arrays.asList(0, 1), sorted(dropped));
+		assertEquals(3, scheduler.getPendingCount());
+		runAll();
+		assertEquals(Arrays.asList(4, 3, 2), decoded);
+	}
+
+	@Test
+	public void landingIndex_isFocusedAsWell() {
+		scheduler.setFocus(0, 50, 1, 100, false);
+		submit(1, 0, 51, 49, 50);
+		runAll();
+		assertEquals(Arrays.asList(0, 50, 1, 51, 49), decoded);
+		scheduler.setFocus(0, -1, 1, 100, false);
+		submit(50);
+		scheduler.setFocus(1, -1, 1, 100, false);
+		assertEquals(Arrays.asList(50), dropped);
+	}
+
+	@Test
+	public void remove_skipsTask() {
+		scheduler.setFocus(0, -1, 5, 100, false);
+		submit(0, 1, 2);
+		assertTrue(scheduler.remove(1));
+		assertFalse(scheduler.remove(1));
+		runAll();
+		assertEquals(Arrays.asList(0, 2), decoded);
+	}
+
+	@Test
+	public void clear_skipsAllTasks() {
+		submit(0, 1, 2);
+		scheduler.clear();
+		runAll();
+		assertTrue(decoded.isEmpty());
+		assertEquals(0, scheduler.getPendingCount());
+	}
+
+	private void submit(int... indices) {
+		for (final int index : indices) {
+			scheduler.submit(new DecodeScheduler.Task(index) {
+				@Override
+				public void run() {
+					decoded.add(index);
+				}
+
+				@Override
+				void onDropped() {
+					dropped.add(index);
+				}
+			});
+		}
+	}
+
+	private void runOne() {
+		posted.poll().run();
+	}
+
+	private void runAll() {
+		while (!posted.isEmpty()) {
+			runOne();
+		}
+	}
+
+	private static List<Integer> sorted(List<Integer> list) {
+		List<Integer> copy = new ArrayList<>(list);
+		Collections.sort(copy);
+		return copy;
+	}
+}
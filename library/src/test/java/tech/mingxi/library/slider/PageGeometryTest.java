@@ -0,0 +1,113 @@
+package tech.mingxi.library.slider;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * checks {@link PageGeometry} against the per-frame formulas it replaced in MXSlider.drawPageImages
+ */
+public class PageGeometryTest {
+	private static final float[] OFFSETS = {-2f, -1.5f, -1f, -0.75f, -0.5f, -0.333f, -0.1f, -0.01f, 0f, 0.01f, 0.1f, 0.333f, 0.5f, 0.75f, 1f, 1.5f, 2f};
+
+	@Test
+	public void matchesOriginalRects_commonSizes() {
+		int[][] bitmapSizes = {{1080, 1920}, {1920, 1080}, {540, 960}, {1000, 1000}, {4032, 3024}, {1, 1}, {3, 7}, {270, 481}};
+		int[][] viewSizes = {{1080, 1920}, {1080, 1794}, {720, 1280}, {1440, 2560}, {1920, 1080}, {480, 800}};
+		for (int[] viewSize : viewSizes) {
+			int width = viewSize[0];
+			int height = viewSize[1];
+			float sideWidth = width * 0.064f;
+			float sideTopMargin = height * 0.133f;
+			float sideHeight = height * 0.431f;
+			for (int[] bitmapSize : bitmapSizes) {
+				for (float offset : OFFSETS) {
+					check(bitmapSize[0], bitmapSize[1], width, height, sideWidth, sideTopMargin, sideHeight, offset);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void matchesOriginalRects_randomSizes() {
+		Random random = new Random(20181018);
+		for (int i = 0; i < 20000; i++) {
+			int width = 1 + random.nextInt(3000);
+			int height = 1 + random.nextInt(3000);
+			int bitmapWidth = 1 + random.nextInt(5000);
+			int bitmapHeight = 1 + random.nextInt(5000);
+			float sideWidth = random.nextFloat() * width / 2;
+			float sideTopMargin = random.nextFloat() * height / 2;
+			float sideHeight = random.nextFloat() * height / 2;
+			float offset = random.nextFloat() * 4 - 2;
+			check(bitmapWidth, bitmapHeight, width, height, sideWidth, sideTopMargin, sideHeight, offset);
+		}
+	}
+
+	@Test
+	public void matchesOriginalRects_afterReuse() {
+		PageGeometry geometry = new PageGeometry();
+		geometry.set(1920, 1080, 1080, 1920, 69.12f, 255.36f, 827.52f);
+		geometry.set(1080, 1920, 720, 1280, 46.08f, 170.24f, 551.68f);
+		for (float offset : OFFSETS) {
+			assertArrayEquals(expected(1080, 1920, 720, 1280, 46.08f, 170.24f, 551.68f, offset), actual(geometry, offset));
+		}
+	}
+
+	private static void check(int bitmapWidth, int bitmapHeight, int width, int height, float sideWidth, float sideTopMargin, float sideHeight, float offset) {
+		PageGeometry geometry = new PageGeometry();
+		geometry.set(bitmapWidth, bitmapHeight, width, height, sideWidth, sideTopMargin, sideHeight);
+		assertArrayEquals(bitmapWidth + "x" + bitmapHeight + " in " + width + "x" + height + " at " + offset,
+				expected(bitmapWidth, bitmapHeight, width, height, sideWidth, sideTopMargin, sideHeight, offset),
+				actual(geometry, offset));
+	}
+
+	private static int[] actual(PageGeometry geometry, float offset) {
+		return new int[]{
+				geometry.backgroundLeft, geometry.backgroundTop, geometry.backgroundRight, geometry.backgroundBottom,
+				geometry.getCenterLeft(offset), geometry.centerTop, geometry.getCenterRight(offset), geometry.centerBottom
+		};
+	}
+
+	/**
+	 * original formulas, copied verbatim
+	 */
+	private static int[] expected(int bitmapWidth, int bitmapHeight, int width, int height, float sideWidth, float sideTopMargin, float sideHeight, float offset) {
+		int[] rects = new int[8];
+		int centerWidth = (int) (width - 2 * sideWidth);
+		int bitmapCenterWidth;
+		double ratio = ((double) width) / height;
+		float x;
+		if (((double) bitmapWidth) / bitmapHeight <= ratio) {
+			x = (float) (bitmapWidth / ratio);
+			rects[0] = 0;
+			rects[1] = (int) ((bitmapHeight - x) / 2.0);
+			rects[2] = bitmapWidth;
+			rects[3] = (int) ((bitmapHeight + x) / 2.0);
+		} else {
+			x = (float) (bitmapHeight * ratio);
+			rects[0] = (int) ((bitmapWidth - x) / 2.0);
+			rects[1] = 0;
+			rects[2] = (int) ((bitmapWidth + x) / 2.0);
+			rects[3] = bitmapHeight;
+		}
+		if (((double) bitmapWidth) / bitmapHeight <= ratio) {
+			x = (float) (bitmapWidth / ratio);
+			bitmapCenterWidth = (int) ((double) bitmapWidth / width * centerWidth);
+			rects[4] = (int) (bitmapWidth * (-0.5 * offset + 0.5) + bitmapCenterWidth * (0.5 * offset - 0.5));
+			rects[5] = (int) ((bitmapHeight - x) / 2.0 + x * sideTopMargin / height);
+			rects[6] = (int) (bitmapWidth * (-0.5 * offset + 0.5) + bitmapCenterWidth * (0.5 * offset + 0.5));
+			rects[7] = (int) ((bitmapHeight - x) / 2.0 + x * (((double) sideTopMargin + sideHeight) / height));
+		} else {
+			x = (float) (bitmapHeight * ratio);
+			bitmapCenterWidth = (int) (x / width * centerWidth);
+			rects[4] = (int) ((bitmapWidth - x) / 2.0 + x * (-0.5 * offset + 0.5) + bitmapCenterWidth * (0.5 * offset - 0.5));
+			rects[5] = (int) (bitmapHeight * ((double) sideTopMargin) / height);
+			rects[6] = (int) ((bitmapWidth - x) / 2.0 + x * (-0.5 * offset + 0.5) + bitmapCenterWidth * (0.5 * offset + 0.5));
+			rects[7] = (int) (bitmapHeight * (((double) sideTopMargin + sideHeight) / height));
+		}
+		return rects;
+	}
+}
@@ -0,0 +1,169 @@
+package tech.mingxi.library.slider;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * applies changes from {@link PageListDiff} to the old list and checks that it turns into the new
+ * one, and that indices mapped through the changes follow their items
+ */
+public class PageListDiffTest {
+	@Test
+	public void sameList_hasNoChanges() {
+		assertEquals(0, diff("abcdef", "abcdef").size());
+	}
+
+	@Test
+	public void singleEdits_makeSingleChange() {
+		assertChanges("abcdef", "abxcdef", "insert 2");
+		assertChanges("abcdef", "abdef", "remove 2");
+		assertChanges("abcdef", "abxdef", "replace 2");
+		assertChanges("abcdef", "bcdeaf", "move 0 to 4");
+		assertChanges("abcdef", "aebcdf", "move 4 to 1");
+	}
+
+	@Test
+	public void emptyLists() {
+		assertChanges("", "ab", "insert 0", "insert 1");
+		assertChanges("ab", "", "remove 1", "remove 0");
+		assertChanges("", "");
+	}
+
+	@Test
+	public void duplicates_areMatchedInOrder() {
+		check("aab", "aba");
+		check("aaa", "aa");
+		check("abab", "baba");
+	}
+
+	@Test
+	public void mixedEdits() {
+		check("abcdefgh", "hbxcgfaz");
+		check("abc", "xyz");
+		check("abcdef", "fedcba");
+	}
+
+	@Test
+	public void randomLists() {
+		Random random = new Random(7);
+		for (int round = 0; round < 2000; round++) {
+			check(randomString(random, 12), randomString(random, 12));
+		}
+	}
+
+	@Test
+	public void longRandomLists() {
+		//many moves, inserts and removes per list
+		Random random = new Random(13);
+		for (int round = 0; round < 20; round++) {
+			check(randomString(random, 500), randomString(random, 500));
+		}
+	}
+
+	@Test
+	public void mapIndex_followsItems() {
+		Random random = new Random(11);
+		for (int round = 0; round < 500; round++) {
+			List<Character> current = toList(randomString(random, 12));
+			List<Character> target = toList(randomString(random, 12));
+			for (PageListDiff.Change<Character> change : PageListDiff.compute(current, target)) {
+				List<Character> next = apply(current, change);
+				for (int i = 0; i < current.size(); i++) {
+					int mapped = PageListDiff.mapIndex(change.type, change.index, change.toIndex, i);
+					if (mapped < 0) {
+						assertEquals(PageListDiff.REMOVE, change.type);
+						assertEquals(change.index, i);
+					} else if (change.type != PageListDiff.REPLACE || i != change.index) {
+						assertEquals(current.get(i), next.get(mapped));
+					}
+				}
+				current = next;
+			}
+		}
+	}
+
+	@Test
+	public void longestIncreasingRun() {
+		assertArrayEquals(new boolean[]{true, false, true, true, true},
+				PageListDiff.getLongestIncreasingRun(new int[]{0, 5, 1, 2, 3}));
+		assertArrayEquals(new boolean[]{false, true, false, true},
+				PageListDiff.getLongestIncreasingRun(new int[]{-1, 2, -1, 5}));
+		assertArrayEquals(new boolean[0], PageListDiff.getLongestIncreasingRun(new int[0]));
+	}
+
+	private static void assertChanges(String oldList, String newList, String... expected) {
+		List<String> changes = new ArrayList<>();
+		for (PageListDiff.Change<Character> change : check(oldList, newList)) {
+			changes.add(change.toString());
+		}
+		assertEquals(Arrays.asList(expected), changes);
+	}
+
+	private static List<PageListDiff.Change<Character>> check(String oldList, String newList) {
+		List<PageListDiff.Change<Character>> changes = diff(oldList, newList);
+		List<Character> current = toList(oldList);
+		for (PageListDiff.Change<Character> change : changes) {
+			current = apply(current, change);
+		}
+		assertEquals(oldList + " -> " + newList + " " + changes, toList(newList), current);
+		//never more changes than removing and inserting everything
+		assertTrue(changes.size() <= oldList.length() + newList.length());
+		return changes;
+	}
+
+	private static List<PageListDiff.Change<Character>> diff(String oldList, String newList) {
+		return PageListDiff.compute(toList(oldList), toList(newList));
+	}
+
+	private static List<Character> apply(List<Character> list, PageListDiff.Change<Character> change) {
+		List<Character> result = new ArrayList<>(list);
+		switch (change.type) {
+			case PageListDiff.INSERT:
+				result.add(change.index, change.item);
+				break;
+			case PageListDiff.REMOVE:
+				result.remove(change.index);
+				break;
+			case PageListDiff.MOVE:
+				result.add(change.toIndex, result.remove(change.index));
+				break;
+			default:
+				result.set(change.index, change.item);
+				break;
+		}
+		return result;
+	}
+
+	private static String randomString(Random random, int letterCount) {
+		List<Character> letters = new ArrayList<>();
+		for (int i = 0; i < letterCount; i++) {
+			letters.add((char) ('a' + i));
+		}
+		//a few duplicates now and then
+		letters.add('a');
+		letters.add('b');
+		Collections.shuffle(letters, random);
+		StringBuilder builder = new StringBuilder();
+		for (Character letter : letters.subList(0, random.nextInt(letters.size() + 1))) {
+			builder.append(letter);
+		}
+		return builder.toString();
+	}
+
+	private static List<Character> toList(String string) {
+		List<Character> list = new ArrayList<>();
+		for (int i = 0; i < string.length(); i++) {
+			list.add(string.charAt(i));
+		}
+		return list;
+	}
+}
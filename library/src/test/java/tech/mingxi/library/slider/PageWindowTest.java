@@ -0,0 +1,303 @@
+package tech.mingxi.library.slider;
+
+import android.net.Uri;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * loads {@link PageWindow} chunks from a fake data source, with loading and publishing run by hand
+ */
+public class PageWindowTest {
+	private static final int CHUNK_SIZE = 10;
+	private static final int MAX_CHUNKS = 3;
+
+	private ArrayDeque<Runnable> loads;
+	private ArrayDeque<Runnable> publishes;
+	private FakeDataSource dataSource;
+	private List<int[]> loaded;
+	private List<RuntimeException> failures;
+	private List<Long> retryDelays;
+	private PageWindow window;
+
+	@Before
+	public void setUp() {
+		loads = new ArrayDeque<>();
+		publishes = new ArrayDeque<>();
+		dataSource = new FakeDataSource(100000);
+		loaded = new ArrayList<>();
+		failures = new ArrayList<>();
+		retryDelays = new ArrayList<>();
+		window = createWindow(PageWindow.DEFAULT_RETRY_DELAY_MILLIS);
+	}
+
+	private PageWindow createWindow(long retryDelayMillis) {
+		return new PageWindow(dataSource, CHUNK_SIZE, MAX_CHUNKS, retryDelayMillis, queue(loads), queue(publishes), new PageWindow.Listener() {
+			@Override
+			public void onPagesLoaded(int start, int count) {
+				loaded.add(new int[]{start, count});
+			}
+
+			@Override
+			public void onLoadFailed(int start, int count, RuntimeException e, long retryDelayMillis) {
+				failures.add(e);
+				retryDelays.add(retryDelayMillis);
+			}
+		});
+	}
+
+	@Test
+	public void loadsChunkOfRequestedPage() {
+		assertEquals(100000, window.getPageCount());
+		assertNull(window.getPage(42));
+		runAll();
+		assertEquals(1, loaded.size());
+		assertEquals(40, loaded.get(0)[0]);
+		assertEquals(CHUNK_SIZE, loaded.get(0)[1]);
+		assertEquals("40", window.getPage(40).getTitle());
+		assertEquals("49", window.getPage(49).getTitle());
+		assertFalse(window.isLoaded(50));
+	}
+
+	@Test
+	public void loadsEachChunkOnce() {
+		window.getPage(1);
+		window.getPage(2);
+		window.getPage(3);
+		assertEquals(1, loads.size());
+		runAll();
+		window.getPage(4);
+		assertTrue(loads.isEmpty());
+		assertEquals(1, dataSource.loadCount);
+	}
+
+	@Test
+	public void lastChunkIsShort() {
+		dataSource.pageCount = 25;
+		window.reset();
+		window.getPage(24);
+		runAll();
+		assertEquals(5, loaded.get(0)[1]);
+		assertEquals("24", window.getPage(24).getTitle());
+		assertNull(window.getPage(25));
+	}
+
+	@Test
+	public void keepsAtMostMaxChunks_dropsLeastRecentlyUsed() {
+		load(0);
+		load(10);
+		load(20);
+		//touch chunk 0, so chunk of 10 is least recently used
+		window.getPage(0);
+		load(30);
+		assertTrue(window.isLoaded(0));
+		assertFalse(window.isLoaded(10));
+		assertTrue(window.isLoaded(20));
+		assertTrue(window.isLoaded(30));
+	}
+
+	@Test
+	public void reset_dropsChunksAndStaleLoads() {
+		window.getPage(0);
+		dataSource.pageCount = 5;
+		window.reset();
+		runAll();
+		assertTrue(loaded.isEmpty());
+		assertEquals(5, window.getPageCount());
+		assertNull(window.getPage(0));
+		runAll();
+		assertEquals("0", window.getPage(0).getTitle());
+	}
+
+	@Test
+	public void partialLoad_isRequestedAgain() {
+		window = createWindow(0);
+		dataSource.maxResult = 4;
+		window.getPage(0);
+		runAll();
+		assertEquals("3", window.getPage(3).getTitle());
+		dataSource.maxResult = Integer.MAX_VALUE;
+		assertNull(window.getPage(7));
+		runAll();
+		assertEquals("7", window.getPage(7).getTitle());
+	}
+
+	@Test
+	public void partialLoad_isNotRequestedAgainBeforeRetryDelay() {
+		dataSource.maxResult = 4;
+		window.getPage(0);
+		runAll();
+		assertEquals(1, failures.size());
+		assertNull(failures.get(0));
+		assertEquals("3", window.getPage(3).getTitle());
+		//like drawing frame after frame
+		for (int i = 0; i < 10; i++) {
+			assertNull(window.getPage(7));
+			runAll();
+		}
+		assertEquals(1, dataSource.loadCount);
+	}
+
+	@Test
+	public void throwingDataSource_failsChunkWithoutThrowing() {
+		dataSource.failure = new IllegalStateException("cursor closed");
+		assertNull(window.getPage(5));
+		runAll();
+		assertEquals(1, failures.size());
+		assertEquals(dataSource.failure, failures.get(0));
+		assertTrue(loaded.isEmpty());
+		for (int i = 0; i < 10; i++) {
+			assertNull(window.getPage(5));
+			runAll();
+		}
+		assertEquals(1, dataSource.loadCount);
+		//other chunks still load
+		dataSource.failure = null;
+		load(15);
+		assertEquals("15", window.getPage(15).getTitle());
+	}
+
+	@Test
+	public void failedChunk_isRequestedAgainAfterRetryDelayOrReset() {
+		dataSource.failure = new IllegalStateException();
+		load(5);
+		dataSource.failure = null;
+		window.reset();
+		load(5);
+		assertEquals("5", window.getPage(5).getTitle());
+
+		window = createWindow(0);
+		dataSource.failure = new IllegalStateException();
+		load(25);
+		assertFalse(window.isLoaded(25));
+		dataSource.failure = null;
+		load(25);
+		assertEquals("25", window.getPage(25).getTitle());
+		assertEquals(2, failures.size());
+	}
+
+	@Test
+	public void failedChunk_retryDelayDoubles_andAllowRetryEndsIt() {
+		dataSource.failure = new IllegalStateException();
+		load(5);
+		window.allowRetry(5);
+		load(5);
+		assertEquals(2, dataSource.loadCount);
+		assertEquals(Long.valueOf(PageWindow.DEFAULT_RETRY_DELAY_MILLIS), retryDelays.get(0));
+		assertEquals(Long.valueOf(2 * PageWindow.DEFAULT_RETRY_DELAY_MILLIS), retryDelays.get(1));
+		//still waiting for the second delay
+		load(5);
+		assertEquals(2, dataSource.loadCount);
+		dataSource.failure = null;
+		window.allowRetry(5);
+		load(5);
+		assertEquals("5", window.getPage(5).getTitle());
+	}
+
+	@Test
+	public void peekPage_neitherLoadsNorCountsAsUse() {
+		assertNull(window.peekPage(5));
+		assertTrue(loads.isEmpty());
+		load(0);
+		load(10);
+		load(20);
+		assertEquals("5", window.peekPage(5).getTitle());
+		//chunk 0 is still least recently used after peeking
+		load(30);
+		assertNull(window.peekPage(5));
+		assertEquals("15", window.peekPage(15).getTitle());
+	}
+
+	@Test
+	public void outOfRange_returnsNull() {
+		assertNull(window.getPage(-1));
+		assertNull(window.getPage(100000));
+		assertTrue(loads.isEmpty());
+	}
+
+	private void load(int index) {
+		window.getPage(index);
+		runAll();
+	}
+
+	private void runAll() {
+		while (!loads.isEmpty() || !publishes.isEmpty()) {
+			if (!loads.isEmpty()) {
+				loads.poll().run();
+			} else {
+				publishes.poll().run();
+			}
+		}
+	}
+
+	private static Executor queue(final ArrayDeque<Runnable> queue) {
+		return new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				queue.add(command);
+			}
+		};
+	}
+
+	private static final class FakeDataSource implements PageDataSource {
+		int pageCount;
+		int maxResult = Integer.MAX_VALUE;
+		RuntimeException failure;
+		int loadCount = 0;
+
+		FakeDataSource(int pageCount) {
+			this.pageCount = pageCount;
+		}
+
+		@Override
+		public int getPageCount() {
+			return pageCount;
+		}
+
+		@Override
+		public List<? extends Page> loadPages(int start, int count) {
+			loadCount++;
+			if (failure != null) {
+				throw failure;
+			}
+			List<Page> pages = new ArrayList<>();
+			for (int i = start; i < start + Math.min(count, maxResult); i++) {
+				pages.add(new FakePage(i));
+			}
+			return pages;
+		}
+	}
+
+	private static final class FakePage implements Page {
+		private final int index;
+
+		FakePage(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public Uri getLocalUri() {
+			return null;
+		}
+
+		@Override
+		public String getTitle() {
+			return String.valueOf(index);
+		}
+
+		@Override
+		public String getSubtitle() {
+			return null;
+		}
+	}
+}
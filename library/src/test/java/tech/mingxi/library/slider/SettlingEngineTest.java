@@ -0,0 +1,163 @@
+package tech.mingxi.library.slider;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * drives {@link SettlingEngine} with fake frame timestamps
+ */
+public class SettlingEngineTest {
+	private static final long MILLI = 1000000L;
+	private static final long FRAME_60HZ = SettlingEngine.DEFAULT_FRAME_INTERVAL_NANOS;
+	private static final long START = 123456789L * MILLI;
+
+	private SettlingEngine engine;
+
+	@Before
+	public void setUp() {
+		engine = new SettlingEngine();
+	}
+
+	@Test
+	public void snap_firstFrameMoves() {
+		engine.snap(400, START);
+		assertTrue(engine.onFrame(START));
+		assertEquals(expectedSnap(400, 250, FRAME_60HZ), engine.getDisplacement(), 1e-3);
+		assertTrue(engine.getDisplacement() > 0);
+	}
+
+	@Test
+	public void snap_firstFrameBeforeStartMovesOneFrame() {
+		//vsync of the frame in which settling was requested
+		engine.snap(400, START);
+		engine.onFrame(START - 5 * MILLI);
+		assertEquals(expectedSnap(400, 250, FRAME_60HZ), engine.getDisplacement(), 1e-3);
+	}
+
+	@Test
+	public void snap_lateFirstFrameKeepsStartTime() {
+		engine.snap(400, START);
+		engine.onFrame(START + 3 * FRAME_60HZ);
+		assertEquals(expectedSnap(400, 250, 3 * FRAME_60HZ), engine.getDisplacement(), 1e-3);
+	}
+
+	@Test
+	public void snap_endsExactlyAtDisplacement() {
+		engine.snap(-300, START);
+		int frames = runAt(FRAME_60HZ);
+		assertFalse(engine.isRunning());
+		assertEquals(-300f, engine.getDisplacement(), 0);
+		//first frame is one frame interval after start
+		assertEquals((int) Math.ceil(250.0 * MILLI / FRAME_60HZ), frames);
+	}
+
+	@Test
+	public void snap_followsFrameInterval() {
+		engine.setFrameIntervalNanos(10 * MILLI);
+		engine.snap(500, START);
+		int frames = runAt(10 * MILLI);
+		assertEquals(25, frames);
+		assertEquals(500f, engine.getDisplacement(), 0);
+	}
+
+	@Test
+	public void snap_isMonotonic() {
+		engine.snap(700, START);
+		float last = 0;
+		long time = START;
+		while (engine.onFrame(time)) {
+			assertTrue(engine.getDisplacement() >= last);
+			assertTrue(engine.getDisplacement() <= 700);
+			last = engine.getDisplacement();
+			time += FRAME_60HZ;
+		}
+	}
+
+	@Test
+	public void fling_endsWithZeroVelocityAtDisplacement() {
+		//1.5 px per ms over 300px takes 2 * 300 / 1.5 = 400ms
+		engine.fling(300, 1.5f, START);
+		assertTrue(engine.onFrame(START + FRAME_60HZ));
+		assertEquals(1.5 * 16.667 - 0.5 * (1.5 * 1.5 / 600) * 16.667 * 16.667, engine.getDisplacement(), 1e-2);
+		assertTrue(engine.onFrame(START + 399 * MILLI));
+		assertEquals(300f, engine.getDisplacement(), 1e-2);
+		assertFalse(engine.onFrame(START + 400 * MILLI));
+		assertEquals(300f, engine.getDisplacement(), 0);
+	}
+
+	@Test
+	public void fling_againstDisplacementStopsAtOnce() {
+		engine.fling(-200, 2f, START);
+		assertTrue(engine.isRunning());
+		assertFalse(engine.onFrame(START));
+		assertEquals(-200f, engine.getDisplacement(), 0);
+	}
+
+	@Test
+	public void zeroDisplacement_doesNotRun() {
+		engine.snap(0, START);
+		assertFalse(engine.isRunning());
+		assertFalse(engine.onFrame(START));
+		assertEquals(0f, engine.getDisplacement(), 0);
+		engine.fling(0, 3f, START);
+		assertFalse(engine.isRunning());
+	}
+
+	@Test
+	public void cancel_stops() {
+		engine.snap(400, START);
+		engine.onFrame(START);
+		float displacement = engine.getDisplacement();
+		engine.cancel();
+		assertFalse(engine.onFrame(START + FRAME_60HZ));
+		assertEquals(displacement, engine.getDisplacement(), 0);
+	}
+
+	@Test
+	public void isDeterministic() {
+		long[] frames = {START - MILLI, START + 15 * MILLI, START + 34 * MILLI, START + 51 * MILLI, START + 90 * MILLI, START + 91 * MILLI, START + 200 * MILLI};
+		SettlingEngine other = new SettlingEngine();
+		engine.fling(-450, -2.2f, START);
+		other.fling(-450, -2.2f, START);
+		for (long frame : frames) {
+			assertEquals(engine.onFrame(frame), other.onFrame(frame));
+			assertEquals(engine.getDisplacement(), other.getDisplacement(), 0);
+		}
+	}
+
+	@Test
+	public void restart_resetsState() {
+		engine.snap(400, START);
+		runAt(FRAME_60HZ);
+		long restart = START + 1000 * MILLI;
+		engine.snap(-100, restart);
+		assertTrue(engine.onFrame(restart));
+		assertEquals(expectedSnap(-100, 250, FRAME_60HZ), engine.getDisplacement(), 1e-3);
+	}
+
+	/**
+	 * @return number of frames until engine stops, first frame at START
+	 */
+	private int runAt(long frameInterval) {
+		int frames = 0;
+		long time = START;
+		while (true) {
+			frames++;
+			if (!engine.onFrame(time)) {
+				return frames;
+			}
+			time += frameInterval;
+		}
+	}
+
+	private static double expectedSnap(float displacement, long duration, long elapsedNanos) {
+		double t = elapsedNanos / 1e6;
+		double acceleration = -2.0 * displacement / (duration * duration);
+		double velocity = -acceleration * duration;
+		return velocity * t + 0.5 * acceleration * t * t;
+	}
+}
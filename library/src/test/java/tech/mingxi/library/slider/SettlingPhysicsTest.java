@@ -0,0 +1,125 @@
+package tech.mingxi.library.slider;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * built-in {@link SettlingPhysics} and landing of flings
+ */
+public class SettlingPhysicsTest {
+	private static final int WIDTH = 1000;
+	/**
+	 * no built-in physics should take longer to come to rest
+	 */
+	private static final float MAX_TIME = 5000;
+
+	@Test
+	public void expNegative_matchesExp() {
+		for (float x = 0; x < 20; x += 0.0137f) {
+			assertEquals(Math.exp(-x), SliderMath.expNegative(x), Math.exp(-x) * 1e-5 + 2e-7);
+		}
+		assertEquals(1f, SliderMath.expNegative(-1), 0);
+	}
+
+	@Test
+	public void allPhysics_startWithVelocityAndEndAtDisplacement() {
+		SettlingPhysics[] physicsList = {new ConstantDecelerationPhysics(), new SpringPhysics(), new SpringPhysics(SpringPhysics.DEFAULT_STIFFNESS, SpringPhysics.DAMPING_RATIO_CRITICAL), new DecayPhysics()};
+		float[][] motions = {{2500, 10f}, {-800, -4f}, {300, 0}, {-300, 0}};
+		for (SettlingPhysics physics : physicsList) {
+			for (float[] motion : motions) {
+				physics.start(motion[0], motion[1]);
+				assertEquals(0f, physics.getDisplacement(0), 1e-3);
+				if (motion[1] != 0) {
+					//table and float precision allow only a rough estimate over a short step
+					assertEquals(motion[1], physics.getDisplacement(0.1f) / 0.1f, Math.abs(motion[1]) * 0.05);
+				}
+				float end = getEndTime(physics);
+				assertTrue(physics.getClass().getSimpleName() + " does not come to rest", end < MAX_TIME);
+				assertEquals(motion[0], physics.getDisplacement(end), 0.5f);
+			}
+		}
+	}
+
+	@Test
+	public void constantDeceleration_snapsInDuration() {
+		ConstantDecelerationPhysics physics = new ConstantDecelerationPhysics(200, 0);
+		physics.start(500, 0);
+		assertFalse(physics.isFinished(199));
+		assertTrue(physics.isFinished(200));
+		assertEquals(500f, physics.getDisplacement(200), 1e-3);
+	}
+
+	@Test
+	public void decay_isMonotonic() {
+		DecayPhysics physics = new DecayPhysics();
+		physics.start(-3000, -6f);
+		float last = 0;
+		for (float time = 0; !physics.isFinished(time); time += 8) {
+			float displacement = physics.getDisplacement(time);
+			assertTrue(displacement <= last);
+			assertTrue(displacement >= -3000);
+			last = displacement;
+		}
+	}
+
+	@Test
+	public void decay_weakFlingDoesNotCrawl() {
+		DecayPhysics physics = new DecayPhysics();
+		physics.start(1000, 0.5f);
+		assertTrue(getEndTime(physics) < 2000);
+	}
+
+	@Test
+	public void underdampedSpring_overshoots() {
+		SpringPhysics physics = new SpringPhysics(SpringPhysics.DEFAULT_STIFFNESS, 0.3f);
+		physics.start(1000, 5f);
+		float max = 0;
+		for (float time = 0; time < MAX_TIME; time += 4) {
+			max = Math.max(max, physics.getDisplacement(time));
+		}
+		assertTrue(max > 1000);
+	}
+
+	@Test
+	public void flingTarget_zeroDistanceFactorMovesOnePage() {
+		ConstantDecelerationPhysics physics = new ConstantDecelerationPhysics(ConstantDecelerationPhysics.DEFAULT_DURATION, 0);
+		assertEquals(2, SliderMath.getFlingTargetIndex(2.2f, physics.getFlingDistance(30f) / WIDTH, true, 7, true));
+		assertEquals(3, SliderMath.getFlingTargetIndex(2.2f, physics.getFlingDistance(-30f) / WIDTH, false, 7, true));
+		assertEquals(2, SliderMath.getFlingTargetIndex(2.9f, 0, true, 7, true));
+		assertEquals(3, SliderMath.getFlingTargetIndex(2.1f, 0, false, 7, true));
+	}
+
+	@Test
+	public void flingTarget_isProportionalToVelocity() {
+		ConstantDecelerationPhysics physics = new ConstantDecelerationPhysics();
+		//250ms of 2, 12 and 40 px per ms are 0.5, 3 and 10 pages
+		assertEquals(2, SliderMath.getFlingTargetIndex(1.6f, physics.getFlingDistance(-2f) / WIDTH, false, 300, false));
+		assertEquals(5, SliderMath.getFlingTargetIndex(1.6f, physics.getFlingDistance(-12f) / WIDTH, false, 300, false));
+		assertEquals(12, SliderMath.getFlingTargetIndex(1.6f, physics.getFlingDistance(-40f) / WIDTH, false, 300, false));
+		assertEquals(-8, SliderMath.getFlingTargetIndex(1.6f, physics.getFlingDistance(40f) / WIDTH, true, 300, true));
+	}
+
+	@Test
+	public void flingTarget_strongFlingCrossesPages() {
+		DecayPhysics physics = new DecayPhysics();
+		//8 px per ms travels 2000px, 2 pages
+		float pages = physics.getFlingDistance(8f) / WIDTH;
+		assertEquals(0, SliderMath.getFlingTargetIndex(2.2f, pages, true, 7, true));
+		assertEquals(4, SliderMath.getFlingTargetIndex(2.2f, -pages, false, 7, true));
+		//wraps later when looping, clamped otherwise
+		assertEquals(-1, SliderMath.getFlingTargetIndex(0.8f, pages, true, 7, true));
+		assertEquals(0, SliderMath.getFlingTargetIndex(0.8f, pages, true, 7, false));
+		assertEquals(6, SliderMath.getFlingTargetIndex(5.5f, -pages, false, 7, false));
+	}
+
+	private static float getEndTime(SettlingPhysics physics) {
+		float time = 0;
+		while (!physics.isFinished(time) && time < MAX_TIME) {
+			time += 1;
+		}
+		return time;
+	}
+}
@@ -0,0 +1,132 @@
+package tech.mingxi.library.slider;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * checks index resolving and swipe position wrapping of {@link SliderMath} against plain reference
+ * implementations, for every page count up to {@link #MAX_PAGE_COUNT} and every index within
+ * several rounds around it, plus the extremes of int
+ */
+public class SliderMathTest {
+	private static final int MAX_PAGE_COUNT = 70;
+	private static final int ROUNDS = 3;
+	private static final int[] EXTREMES = {Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -1, 0, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+
+	@Test
+	public void resolveIndex_matchesReference() {
+		for (int pageCount = 0; pageCount <= MAX_PAGE_COUNT; pageCount++) {
+			for (int index = -ROUNDS * pageCount - 3; index <= ROUNDS * pageCount + 3; index++) {
+				checkResolveIndex(index, pageCount);
+			}
+			for (int index : EXTREMES) {
+				checkResolveIndex(index, pageCount);
+			}
+		}
+		//page counts around where wrapping without a division stops
+		for (int pageCount : new int[]{(1 << 30) - 1, 1 << 30, (1 << 30) + 1, Integer.MAX_VALUE - 1, Integer.MAX_VALUE}) {
+			for (int index : EXTREMES) {
+				checkResolveIndex(index, pageCount);
+				checkResolveIndex(index - pageCount, pageCount);
+				checkResolveIndex(index + pageCount, pageCount);
+				checkResolveIndex(-pageCount, pageCount);
+				checkResolveIndex(pageCount, pageCount);
+			}
+		}
+	}
+
+	@Test
+	public void resolveIndex_loopingStepsAroundOneByOne() {
+		for (int pageCount = 1; pageCount <= MAX_PAGE_COUNT; pageCount++) {
+			int previous = SliderMath.resolveIndex(-ROUNDS * pageCount - 1, pageCount, true);
+			for (int index = -ROUNDS * pageCount; index <= ROUNDS * pageCount; index++) {
+				int resolved = SliderMath.resolveIndex(index, pageCount, true);
+				assertEquals((previous + 1) % pageCount, resolved);
+				previous = resolved;
+			}
+		}
+	}
+
+	@Test
+	public void isInRange_matchesReference() {
+		for (int pageCount = 0; pageCount <= MAX_PAGE_COUNT; pageCount++) {
+			for (int index = -pageCount - 3; index <= 2 * pageCount + 3; index++) {
+				assertEquals(index >= 0 && index < pageCount, SliderMath.isInRange(index, pageCount));
+			}
+			for (int index : EXTREMES) {
+				assertEquals(index >= 0 && index < pageCount, SliderMath.isInRange(index, pageCount));
+			}
+		}
+	}
+
+	@Test
+	public void getFixedIndex_isLoopingResolve() {
+		assertEquals(-1, SliderMath.getFixedIndex(5, 0));
+		assertEquals(6, SliderMath.getFixedIndex(-1, 7));
+		assertEquals(0, SliderMath.getFixedIndex(-7, 7));
+		assertEquals(1, SliderMath.getFixedIndex(8, 7));
+	}
+
+	@Test
+	public void getDistance_withoutPages_doesNotThrow() {
+		assertEquals(3, SliderMath.getDistance(3, 0, 0, true));
+		assertEquals(1, SliderMath.getDistance(0, 6, 7, true));
+		assertEquals(6, SliderMath.getDistance(0, 6, 7, false));
+	}
+
+	@Test
+	public void fixSwipePosition_staysInRange() {
+		for (int pageCount = 1; pageCount <= MAX_PAGE_COUNT; pageCount++) {
+			for (int step = -ROUNDS * pageCount * 8; step <= ROUNDS * pageCount * 8; step++) {
+				//eighths are exact in float, so the expected values are too
+				float swipePosition = step / 8f;
+				checkFixSwipePosition(swipePosition, pageCount);
+			}
+		}
+	}
+
+	@Test
+	public void fixSwipePosition_edgeCases() {
+		assertEquals(0, SliderMath.fixSwipePosition(3.5f, 0, true), 0);
+		assertEquals(0, SliderMath.fixSwipePosition(3.5f, 0, false), 0);
+		assertEquals(0, SliderMath.fixSwipePosition(Float.NaN, 5, true), 0);
+		assertEquals(0, SliderMath.fixSwipePosition(Float.NaN, 5, false), 0);
+		assertEquals(0, SliderMath.fixSwipePosition(Float.POSITIVE_INFINITY, 5, true), 0);
+		assertEquals(0, SliderMath.fixSwipePosition(Float.NEGATIVE_INFINITY, 5, true), 0);
+		assertEquals(4, SliderMath.fixSwipePosition(Float.POSITIVE_INFINITY, 5, false), 0);
+		assertEquals(0, SliderMath.fixSwipePosition(Float.NEGATIVE_INFINITY, 5, false), 0);
+		assertEquals(0, SliderMath.fixSwipePosition(-3e9f, 5, true), 0);
+		//fraction of a tiny negative position rounds to a whole page
+		float fixed = SliderMath.fixSwipePosition(-1e-9f, 5, true);
+		assertTrue(fixed >= 0 && fixed < 5);
+		for (float swipePosition : new float[]{-1e-3f, -0.3f, -4.7f, 12.9f, 1e6f + 0.5f}) {
+			fixed = SliderMath.fixSwipePosition(swipePosition, 5, true);
+			assertTrue(swipePosition + " -> " + fixed, fixed >= 0 && fixed < 5);
+		}
+	}
+
+	private static void checkResolveIndex(int index, int pageCount) {
+		assertEquals("index " + index + " of " + pageCount, referenceResolve(index, pageCount, false), SliderMath.resolveIndex(index, pageCount, false));
+		assertEquals("index " + index + " of " + pageCount + " looping", referenceResolve(index, pageCount, true), SliderMath.resolveIndex(index, pageCount, true));
+	}
+
+	private static void checkFixSwipePosition(float swipePosition, int pageCount) {
+		float expected = Math.max(0, Math.min(pageCount - 1, swipePosition));
+		assertEquals(swipePosition + " of " + pageCount, expected, SliderMath.fixSwipePosition(swipePosition, pageCount, false), 0);
+		double wrapped = swipePosition - pageCount * Math.floor((double) swipePosition / pageCount);
+		assertEquals(swipePosition + " of " + pageCount + " looping", (float) wrapped, SliderMath.fixSwipePosition(swipePosition, pageCount, true), 0);
+	}
+
+	private static int referenceResolve(int index, int pageCount, boolean loop) {
+		if (pageCount <= 0) {
+			return -1;
+		}
+		if (!loop) {
+			return index >= 0 && index < pageCount ? index : -1;
+		}
+		long count = pageCount;
+		return (int) (((index % count) + count) % count);
+	}
+}
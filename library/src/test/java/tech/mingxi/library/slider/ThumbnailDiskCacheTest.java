@@ -0,0 +1,251 @@
+package tech.mingxi.library.slider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * puts entries of {@link ThumbnailDiskCache} into a temp directory and opens it again, the way
+ * a second launch does, with intact, truncated and broken journals
+ */
+public class ThumbnailDiskCacheTest {
+	private static final int ENTRY_SIZE = 10;
+	private static final long MAX_SIZE = 3 * ENTRY_SIZE;
+
+	private File directory;
+	private ThumbnailDiskCache cache;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("thumbnails").toFile();
+		cache = new ThumbnailDiskCache(directory, MAX_SIZE);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		cache.close();
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void get_returnsWhatWasPut() throws IOException {
+		put("a", 1);
+		assertEquals(1, read("a"));
+		assertNull(cache.get("b"));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(ENTRY_SIZE, cache.getSize());
+	}
+
+	@Test
+	public void get_fileCutShort_isMissAndForgotten() throws IOException {
+		put("a", 1);
+		RandomAccessFile file = new RandomAccessFile(new File(directory, "a"), "rw");
+		try {
+			file.setLength(ENTRY_SIZE / 2);
+		} finally {
+			file.close();
+		}
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.getEntryCount());
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void put_replacesEntry() throws IOException {
+		put("a", 1);
+		put("a", 2);
+		assertEquals(2, read("a"));
+		assertEquals(1, cache.getEntryCount());
+		assertEquals(ENTRY_SIZE, cache.getSize());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedFirst() throws IOException {
+		put("a", 1);
+		put("b", 2);
+		put("c", 3);
+		//reading a makes b the eldest
+		read("a");
+		put("d", 4);
+		assertEquals(1, cache.getEvictionCount());
+		assertFalse(new File(directory, "b").exists());
+		assertNull(cache.get("b"));
+		assertEquals(1, read("a"));
+		assertEquals(3, read("c"));
+		assertEquals(4, read("d"));
+	}
+
+	@Test
+	public void setMaxSize_evictsEldest() throws IOException {
+		put("a", 1);
+		put("b", 2);
+		put("c", 3);
+		cache.setMaxSize(ENTRY_SIZE);
+		assertEquals(1, cache.getEntryCount());
+		assertEquals(3, read("c"));
+	}
+
+	@Test
+	public void reopen_replaysJournal() throws IOException {
+		put("a", 1);
+		put("b", 2);
+		put("c", 3);
+		read("a");
+		cache.remove("c");
+		put("c", 5);
+		reopen();
+		assertEquals(3, cache.getEntryCount());
+		assertEquals(3 * ENTRY_SIZE, cache.getSize());
+		//LRU order survived, b is still the eldest
+		put("d", 4);
+		assertNull(cache.get("b"));
+		assertEquals(1, read("a"));
+		assertEquals(5, read("c"));
+		assertEquals(4, read("d"));
+	}
+
+	@Test
+	public void reopen_truncatedJournal_keepsEntriesReadSoFar() throws IOException {
+		put("a", 1);
+		put("b", 2);
+		cache.close();
+		//cut the last line in the middle of the length of b
+		File journal = new File(directory, ThumbnailDiskCache.JOURNAL_FILE);
+		RandomAccessFile file = new RandomAccessFile(journal, "rw");
+		try {
+			file.setLength(file.length() - 2);
+		} finally {
+			file.close();
+		}
+		cache = new ThumbnailDiskCache(directory, MAX_SIZE);
+		assertEquals(1, read("a"));
+		assertNull(cache.get("b"));
+		assertFalse(new File(directory, "b").exists());
+		assertEquals(ENTRY_SIZE, cache.getSize());
+	}
+
+	@Test
+	public void reopen_garbageInJournal_keepsEntriesBeforeIt() throws IOException {
+		put("a", 1);
+		cache.close();
+		FileOutputStream stream = new FileOutputStream(new File(directory, ThumbnailDiskCache.JOURNAL_FILE), true);
+		try {
+			stream.write("CLEAN b -3\nCLEAN c 10\n".getBytes("UTF-8"));
+		} finally {
+			stream.close();
+		}
+		writeFile("c", 3);
+		cache = new ThumbnailDiskCache(directory, MAX_SIZE);
+		assertEquals(1, read("a"));
+		//lines after the broken one are ignored, so c is an orphan
+		assertNull(cache.get("c"));
+		assertFalse(new File(directory, "c").exists());
+	}
+
+	@Test
+	public void reopen_brokenHeader_startsEmpty() throws IOException {
+		put("a", 1);
+		cache.close();
+		FileOutputStream stream = new FileOutputStream(new File(directory, ThumbnailDiskCache.JOURNAL_FILE));
+		try {
+			stream.write("not a journal\nCLEAN a 10\n".getBytes("UTF-8"));
+		} finally {
+			stream.close();
+		}
+		cache = new ThumbnailDiskCache(directory, MAX_SIZE);
+		assertEquals(0, cache.getEntryCount());
+		assertFalse(new File(directory, "a").exists());
+	}
+
+	@Test
+	public void reopen_deletesTempAndOrphanFiles() throws IOException {
+		put("a", 1);
+		writeFile("b.tmp", 2);
+		writeFile("orphan", 3);
+		reopen();
+		assertEquals(1, read("a"));
+		assertFalse(new File(directory, "b.tmp").exists());
+		assertFalse(new File(directory, "orphan").exists());
+		assertTrue(new File(directory, ThumbnailDiskCache.JOURNAL_FILE).exists());
+	}
+
+	@Test
+	public void reopen_entryWithWrongFileSize_isDropped() throws IOException {
+		put("a", 1);
+		put("b", 2);
+		cache.close();
+		RandomAccessFile file = new RandomAccessFile(new File(directory, "b"), "rw");
+		try {
+			file.setLength(ENTRY_SIZE / 2);
+		} finally {
+			file.close();
+		}
+		cache = new ThumbnailDiskCache(directory, MAX_SIZE);
+		assertEquals(1, cache.getEntryCount());
+		assertNull(cache.get("b"));
+	}
+
+	private void reopen() throws IOException {
+		cache.close();
+		cache = new ThumbnailDiskCache(directory, MAX_SIZE);
+	}
+
+	/**
+	 * put an entry of ENTRY_SIZE bytes, all of them value
+	 */
+	private void put(String key, int value) throws IOException {
+		cache.put(key, ByteBuffer.wrap(content(value)));
+	}
+
+	/**
+	 * @return value an entry was put with
+	 */
+	private int read(String key) {
+		ByteBuffer buffer = cache.get(key);
+		assertNotNull(key, buffer);
+		assertEquals(ENTRY_SIZE, buffer.remaining());
+		int value = buffer.get(0);
+		for (int i = 1; i < ENTRY_SIZE; i++) {
+			assertEquals(value, buffer.get(i));
+		}
+		return value;
+	}
+
+	private void writeFile(String name, int value) throws IOException {
+		FileOutputStream stream = new FileOutputStream(new File(directory, name));
+		try {
+			stream.write(content(value));
+		} finally {
+			stream.close();
+		}
+	}
+
+	private static byte[] content(int value) {
+		byte[] content = new byte[ENTRY_SIZE];
+		for (int i = 0; i < ENTRY_SIZE; i++) {
+			content[i] = (byte) value;
+		}
+		return content;
+	}
+}